@@ -0,0 +1,58 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.Algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Auto against each engine it can route to, over every input distribution, to check its routing.
+ * Wherever a fixed engine beats Auto on some shape and size, the matching threshold is off; rerun with it
+ * changed through the fork's {@code -Dsorting.auto.*} arguments (see {@link sorting.AutoSort}) until Auto
+ * keeps up with the best engine. Set up the same way as {@link SortBenchmark}. Counting sort refuses the full int
+ * range of the random inputs, so those runs fail at once with an error.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AutoSortBenchmark {
+
+    @Param({"AUTO", "INTRO", "TIM", "RADIX", "COUNTING"})
+    public Algorithm algorithm;
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    private int[] input;
+    private int[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+    }
+
+    @Benchmark
+    public int[] sort() {
+        System.arraycopy(input, 0, work, 0, size);
+        algorithm.sort(work);
+        return work;
+    }
+}
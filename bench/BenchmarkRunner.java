@@ -0,0 +1,30 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark in this package with the GC profiler attached (the same as {@code -prof gc}),
+ * writing the results as JSON so runs can be diffed for regressions.
+ * Usage: BenchmarkRunner [result file] [benchmark regex]; defaults are jmh-result.json and everything in bench.
+ * The standard JMH main, {@code org.openjdk.jmh.Main}, works too for ad-hoc runs.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : "jmh-result.json";
+        String include = args.length > 1 ? args[1] : "bench\\..*";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * Input shapes for the benchmarks
+ */
+public enum Distribution {
+    /** Uniformly random over every int, negatives included */
+    RANDOM {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = random.nextInt();
+        }
+    },
+    /** Already ascending */
+    SORTED {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = i;
+        }
+    },
+    /** Strictly descending */
+    REVERSED {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = a.length - i;
+        }
+    },
+    /** Random picks from 16 distinct values */
+    FEW_UNIQUE {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = random.nextInt(16);
+        }
+    },
+    /** Ascending to the middle, then descending */
+    ORGAN_PIPE {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = Math.min(i, a.length - 1 - i);
+        }
+    },
+    /** Repeated ascending runs of 1024 */
+    SAWTOOTH {
+        @Override
+        void fill(int[] a, Random random) {
+            for (int i = 0; i < a.length; i++)
+                a[i] = i % 1024;
+        }
+    };
+
+    abstract void fill(int[] a, Random random);
+
+    /**
+     * Creates an input of this shape; the same seed always produces the same numbers
+     * @param n number of values
+     * @param seed random seed
+     * @return generated numbers
+     */
+    public int[] generate(int n, long seed) {
+        int[] a = new int[n];
+        fill(a, new Random(seed));
+        return a;
+    }
+}
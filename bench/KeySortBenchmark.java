@@ -0,0 +1,84 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.Algorithm;
+import sorting.KeySort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks sorting records by an int field: a comparator through merge sort and {@link java.util.Arrays},
+ * against the key extractor path that sorts the keys as primitives.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class KeySortBenchmark {
+
+    public static final class Record {
+        final int key;
+        final long payload;
+
+        Record(int key, long payload) {
+            this.key = key;
+            this.payload = payload;
+        }
+    }
+
+    private static final Comparator<Record> BY_KEY = Comparator.comparingInt(r -> r.key);
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "FEW_UNIQUE", "SORTED"})
+    public Distribution distribution;
+
+    private Record[] input;
+    private Record[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = distribution.generate(size, 42);
+        input = new Record[size];
+        for (int i = 0; i < size; i++)
+            input[i] = new Record(keys[i], i);
+        work = new Record[size];
+    }
+
+    @Benchmark
+    public Record[] mergeComparator() {
+        System.arraycopy(input, 0, work, 0, size);
+        Algorithm.MERGE.sort(work, BY_KEY);
+        return work;
+    }
+
+    @Benchmark
+    public Record[] arraysComparator() {
+        System.arraycopy(input, 0, work, 0, size);
+        Arrays.sort(work, BY_KEY);
+        return work;
+    }
+
+    @Benchmark
+    public Record[] intKey() {
+        System.arraycopy(input, 0, work, 0, size);
+        KeySort.sortByInt(work, r -> r.key);
+        return work;
+    }
+}
@@ -0,0 +1,88 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.InsertionSort;
+import sorting.SortingNetwork;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the two small-range finishes on their own: 96Ki numbers cut into blocks of 8 to 64, each block
+ * sorted with insertion sort or a {@link SortingNetwork}, which is what the engines' leaves do thousands of
+ * times per sort. The effect on whole sorts shows by running SortBenchmark twice, once with
+ * {@code -jvmArgsAppend -Dsorting.leaf=network}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeafSortBenchmark {
+    /** A multiple of every block size, so the blocks tile the array */
+    private static final int COUNT = 3 << 15;
+
+    @Param({"8", "16", "24", "32", "64"})
+    public int blockSize;
+
+    @Param({"RANDOM", "SORTED", "FEW_UNIQUE"})
+    public Distribution distribution;
+
+    private int[] input;
+    private int[] work;
+    private long[] longInput;
+    private long[] longWork;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = distribution.generate(COUNT, 42);
+        work = new int[COUNT];
+        longInput = new long[COUNT];
+        for (int i = 0; i < COUNT; i++)
+            longInput[i] = (long) input[i] << 32 | i;
+        longWork = new long[COUNT];
+    }
+
+    @Benchmark
+    public int[] insertion() {
+        System.arraycopy(input, 0, work, 0, COUNT);
+        for (int from = 0; from < COUNT; from += blockSize)
+            InsertionSort.sort(work, from, from + blockSize);
+        return work;
+    }
+
+    @Benchmark
+    public int[] network() {
+        System.arraycopy(input, 0, work, 0, COUNT);
+        for (int from = 0; from < COUNT; from += blockSize)
+            SortingNetwork.sort(work, from, from + blockSize);
+        return work;
+    }
+
+    @Benchmark
+    public long[] insertionLong() {
+        System.arraycopy(longInput, 0, longWork, 0, COUNT);
+        for (int from = 0; from < COUNT; from += blockSize)
+            InsertionSort.sort(longWork, from, from + blockSize);
+        return longWork;
+    }
+
+    @Benchmark
+    public long[] networkLong() {
+        System.arraycopy(longInput, 0, longWork, 0, COUNT);
+        for (int from = 0; from < COUNT; from += blockSize)
+            SortingNetwork.sort(longWork, from, from + blockSize);
+        return longWork;
+    }
+}
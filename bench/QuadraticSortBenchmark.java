@@ -0,0 +1,56 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.Algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the O(n^2) algorithms, capped at 1e5 numbers; at 1e8 a single insertion sort would take days.
+ * Lomuto quick sort is here too: it is O(n log n) on random input but quadratic on the sorted and repetitive ones.
+ * Set up the same way as {@link SortBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuadraticSortBenchmark {
+
+    @Param({"INSERTION", "BUBBLE", "LOMUTO_QUICK"})
+    public Algorithm algorithm;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    private int[] input;
+    private int[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+    }
+
+    @Benchmark
+    public int[] sort() {
+        System.arraycopy(input, 0, work, 0, size);
+        algorithm.sort(work);
+        return work;
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.Algorithm;
+import sorting.RecordSort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks sorting sort-benchmark style records, 100 bytes with a random 10 byte key in front: the radix
+ * record sort on one flat array, against merge sort, Tim sort and {@link java.util.Arrays} on one array per
+ * record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class RecordSortBenchmark {
+    private static final int RECORD_SIZE = 100;
+    private static final int KEY_LENGTH = 10;
+    private static final Comparator<byte[]> BY_KEY = RecordSort.keyComparator(0, KEY_LENGTH);
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private byte[] input;
+    private byte[] work;
+    private byte[][] rows;
+    private byte[][] workRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = new byte[size * RECORD_SIZE];
+        new Random(42).nextBytes(input);
+        work = new byte[input.length];
+        rows = new byte[size][];
+        for (int i = 0; i < size; i++)
+            rows[i] = Arrays.copyOfRange(input, i * RECORD_SIZE, (i + 1) * RECORD_SIZE);
+        workRows = new byte[size][];
+    }
+
+    @Benchmark
+    public byte[] recordRadix() {
+        System.arraycopy(input, 0, work, 0, input.length);
+        RecordSort.sort(work, RECORD_SIZE, 0, KEY_LENGTH);
+        return work;
+    }
+
+    @Benchmark
+    public byte[][] mergeRows() {
+        System.arraycopy(rows, 0, workRows, 0, size);
+        Algorithm.MERGE.sort(workRows, BY_KEY);
+        return workRows;
+    }
+
+    @Benchmark
+    public byte[][] timRows() {
+        System.arraycopy(rows, 0, workRows, 0, size);
+        Algorithm.TIM.sort(workRows, BY_KEY);
+        return workRows;
+    }
+
+    @Benchmark
+    public byte[][] arraysRows() {
+        System.arraycopy(rows, 0, workRows, 0, size);
+        Arrays.sort(workRows, BY_KEY);
+        return workRows;
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sorting.Algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the O(n log n) algorithms from 1e3 to 1e8 numbers over every input distribution.
+ * Each invocation copies the pristine input into a preallocated array and sorts it in place; the copy is a
+ * single arraycopy, identical for every algorithm, and keeps the sorts themselves from ever seeing sorted input.
+ * The 1e8 inputs need several gigabytes of heap, which the fork arguments provide.
+ * QUICK is intro sort under another name; the textbook Lomuto quick sort goes quadratic on sorted and repetitive
+ * shapes, so it is benchmarked with the O(n^2) algorithms in {@link QuadraticSortBenchmark} instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class SortBenchmark {
+
+    @Param({"HEAP", "MERGE", "TIM", "INTRO", "RADIX", "RADIX_MSD", "PARALLEL_MERGE", "PARALLEL_QUICK",
+            "PARALLEL_RADIX"})
+    public Algorithm algorithm;
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    private int[] input;
+    private int[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = distribution.generate(size, 42);
+        work = new int[size];
+    }
+
+    @Benchmark
+    public int[] sort() {
+        System.arraycopy(input, 0, work, 0, size);
+        algorithm.sort(work);
+        return work;
+    }
+}
@@ -0,0 +1,269 @@
+package gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+
+import java.util.BitSet;
+
+/**
+ * Draws the numbers straight into the pixels of a canvas, for sets far too large for the scatter chart.
+ * Each pixel column shows the min to max of the numbers that fall into it, so a million numbers cost one
+ * line per column. Only columns whose numbers changed since the last frame are redrawn, and frames are
+ * capped so a fast sort can't flood the FX thread; numbers handed over between frames are simply skipped.
+ * When the caller knows which numbers changed it can say so with {@link #update(int[], int[], int)}, and
+ * only their columns are looked at. The columns of numbers being compared can be drawn in a second colour
+ * with {@link #compare(int[], int[])}.
+ */
+class CanvasChartController {
+    static final int DEFAULT_MAX_FPS = 60;
+
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int POINT = 0xFF0000FF;
+    private static final int COMPARED = 0xFFFF0000;
+
+    private final Canvas canvas = new Canvas();
+    private final long minFrameNanos;
+    private final AnimationTimer timer;
+
+    private int[] pending;
+    private boolean scanAll;
+    private final BitSet dirty = new BitSet();
+    // Columns drawn in the compare colour, and those to be from the next frame on
+    private final BitSet marked = new BitSet();
+    private final BitSet marking = new BitSet();
+    private long lastFrame;
+
+    private int width, height;
+    private int[] pixels;
+    private WritableImage image;
+    private int[] shown;
+    private int[] colMin, colMax;
+    private int min, max;
+
+    /**
+     * @param host pane the canvas fills
+     * @param maxFps most frames drawn per second
+     */
+    CanvasChartController(Pane host, int maxFps) {
+        if (maxFps < 1)
+            throw new IllegalArgumentException("maxFps must be positive: " + maxFps);
+        this.minFrameNanos = 1000000000L / maxFps;
+
+        // Unmanaged so the canvas follows the pane's size without feeding back into it
+        canvas.setManaged(false);
+        host.getChildren().add(canvas);
+        canvas.widthProperty().bind(host.widthProperty());
+        canvas.heightProperty().bind(host.heightProperty());
+        canvas.widthProperty().addListener(o -> resized());
+        canvas.heightProperty().addListener(o -> resized());
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (pending != null && now - lastFrame >= minFrameNanos) {
+                    lastFrame = now;
+                    draw(pending);
+                    pending = null;
+                }
+            }
+        };
+        timer.start();
+    }
+
+    /**
+     * Stops drawing frames, for a chart that is no longer shown
+     */
+    void dispose() {
+        timer.stop();
+    }
+
+    /**
+     * Starts over with a new set of numbers, fixing the value axis to their range
+     * @param numSet numbers to show
+     */
+    void reset(int numSet[]) {
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        for (int v : numSet) {
+            if (v < min)
+                min = v;
+            if (v > max)
+                max = v;
+        }
+        shown = null;
+        marking.clear();
+        populateChart(numSet);
+    }
+
+    /**
+     * Queues numbers for the next frame; must be called on the FX thread. Sorting only moves numbers around,
+     * so the value axis set by {@link #reset(int[])} still fits.
+     * @param numSet numbers to show; not modified, and not to be modified by the caller afterwards
+     */
+    void populateChart(int numSet[]) {
+        pending = numSet;
+        scanAll = true;
+    }
+
+    /**
+     * Queues a frame that redraws only the columns showing the given numbers; must be called on the FX thread
+     * @param numSet all the numbers, already changed
+     * @param indices indices of the changed numbers
+     * @param count how many of indices to use
+     */
+    void update(int numSet[], int indices[], int count) {
+        pending = numSet;
+        if (shown == null || shown.length != numSet.length)
+            return;
+        long n = numSet.length;
+        for (int k = 0; k < count; k++) {
+            int i = indices[k];
+            // The column i falls in, or every column it is stretched over when there are fewer numbers than
+            // columns; one either side covers rounding
+            int first = (int) (i * (long) width / n), last = (int) ((i + 1L) * width / n);
+            dirty.set(Math.max(0, first - 1), Math.min(width, last + 2));
+        }
+    }
+
+    /**
+     * Highlights the columns showing the given numbers from the next frame on, in place of those highlighted
+     * before; must be called on the FX thread
+     * @param numSet all the numbers
+     * @param indices indices of the numbers being compared; empty to highlight nothing
+     */
+    void compare(int numSet[], int indices[]) {
+        pending = numSet;
+        marking.clear();
+        if (shown == null || shown.length != numSet.length)
+            return;
+        long n = numSet.length;
+        for (int i : indices) {
+            // Same neighbourhood as update, narrowed to the columns whose range of numbers holds i
+            int first = (int) (i * (long) width / n), last = (int) ((i + 1L) * width / n);
+            for (int c = Math.max(0, first - 1); c < Math.min(width, last + 2); c++) {
+                int lo = (int) ((long) c * n / width);
+                int hi = Math.max(lo + 1, (int) ((long) (c + 1) * n / width));
+                if (i >= lo && i < hi)
+                    marking.set(c);
+            }
+        }
+    }
+
+    /**
+     * Redraws the columns that changed since the last frame and copies just that strip onto the canvas
+     */
+    private void draw(int numSet[]) {
+        int w = (int) canvas.getWidth(), h = (int) canvas.getHeight();
+        if (w <= 0 || h <= 0 || numSet.length == 0)
+            return;
+
+        boolean full = w != width || h != height || shown == null || shown.length != numSet.length;
+        if (full) {
+            width = w;
+            height = h;
+            pixels = new int[w * h];
+            image = new WritableImage(w, h);
+            shown = numSet.clone();
+            colMin = new int[w];
+            colMax = new int[w];
+        }
+
+        // Columns going in or out of the compare colour are drawn whether or not their numbers changed
+        int dirtyLo = w, dirtyHi = -1;
+        if (full || scanAll) {
+            for (int c = 0; c < w; c++) {
+                if (refresh(numSet, c, full, marked.get(c) || marking.get(c))) {
+                    if (c < dirtyLo)
+                        dirtyLo = c;
+                    dirtyHi = c;
+                }
+            }
+        } else {
+            dirty.or(marked);
+            dirty.or(marking);
+            for (int c = dirty.nextSetBit(0); c >= 0 && c < w; c = dirty.nextSetBit(c + 1)) {
+                if (refresh(numSet, c, false, marked.get(c) || marking.get(c))) {
+                    if (c < dirtyLo)
+                        dirtyLo = c;
+                    dirtyHi = c;
+                }
+            }
+        }
+        dirty.clear();
+        scanAll = false;
+        marked.clear();
+        marked.or(marking);
+
+        if (dirtyHi < dirtyLo)
+            return;
+        int dirtyWidth = dirtyHi - dirtyLo + 1;
+        image.getPixelWriter().setPixels(dirtyLo, 0, dirtyWidth, h, PixelFormat.getIntArgbInstance(),
+                pixels, dirtyLo, w);
+        canvas.getGraphicsContext2D().drawImage(image, dirtyLo, 0, dirtyWidth, h, dirtyLo, 0, dirtyWidth, h);
+    }
+
+    /**
+     * Brings column c up to date with the numbers, drawing it into the pixel buffer if it looks different
+     * @param full true if shown has just been taken from the numbers, so the column must be drawn
+     * @param force true to draw the column whether or not it changed
+     * @return true if the column was drawn
+     */
+    private boolean refresh(int numSet[], int c, boolean full, boolean force) {
+        int n = numSet.length;
+        int lo = (int) ((long) c * n / width);
+        int hi = Math.max(lo + 1, (int) ((long) (c + 1) * n / width));
+
+        if (!full) {
+            boolean changed = false;
+            for (int i = lo; i < hi; i++) {
+                if (numSet[i] != shown[i]) {
+                    changed = true;
+                    break;
+                }
+            }
+            if (changed)
+                System.arraycopy(numSet, lo, shown, lo, hi - lo);
+            else if (!force)
+                return false;
+        }
+
+        int cMin = numSet[lo], cMax = cMin;
+        for (int i = lo + 1; i < hi; i++) {
+            int v = numSet[i];
+            if (v < cMin)
+                cMin = v;
+            else if (v > cMax)
+                cMax = v;
+        }
+        if (!full && !force && cMin == colMin[c] && cMax == colMax[c])
+            return false;
+        colMin[c] = cMin;
+        colMax[c] = cMax;
+        drawColumn(c, cMin, cMax, marking.get(c) ? COMPARED : POINT);
+        return true;
+    }
+
+    /**
+     * Fills column c of the pixel buffer with a line from the smallest to the largest of its numbers
+     */
+    private void drawColumn(int c, int cMin, int cMax, int colour) {
+        int top = toY(cMax), bottom = Math.max(toY(cMin), top + 1);
+        for (int y = 0, p = c; y < height; y++, p += width)
+            pixels[p] = y >= top && y <= bottom ? colour : BACKGROUND;
+    }
+
+    private int toY(int value) {
+        if (max == min)
+            return height / 2;
+        return (height - 1) - (int) ((double) ((long) value - min) * (height - 2) / ((long) max - min));
+    }
+
+    private void resized() {
+        if (shown != null && pending == null)
+            pending = shown.clone();
+        shown = null;
+    }
+}
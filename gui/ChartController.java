@@ -1,5 +1,6 @@
 package gui;
 
+import javafx.scene.Node;
 import javafx.scene.chart.ScatterChart;
 import javafx.scene.chart.XYChart;
 
@@ -10,6 +11,8 @@ import javafx.scene.chart.XYChart;
 class ChartController {
 
     private static ScatterChart<Number, Number> chart;
+    private XYChart.Series<Number, Number> series;
+    private int[] compared = new int[0];
 
     ChartController(ScatterChart<Number, Number> chart) {
         ChartController.chart = chart;
@@ -18,12 +21,48 @@ class ChartController {
     /**
      * Updates the chart with data
      */
-    void populateChart(Integer numSet[]){
+    void populateChart(int numSet[]){
         if (chart.getData().size() > 0)
             chart.getData().remove(0);
-        XYChart.Series <Number, Number> series = new XYChart.Series<>();
+        series = new XYChart.Series<>();
+        compared = new int[0];
         for (int i = 0; i < numSet.length; i++)
             series.getData().add(new XYChart.Data<>(i, numSet[i]));
         chart.getData().addAll(series);
     }
+
+    /**
+     * Moves just the points whose numbers changed
+     * @param numSet all the numbers, already changed
+     * @param indices indices of the changed numbers
+     * @param count how many of indices to use
+     */
+    void update(int numSet[], int indices[], int count){
+        for (int k = 0; k < count; k++) {
+            int i = indices[k];
+            series.getData().get(i).setYValue(numSet[i]);
+        }
+    }
+
+    /**
+     * Marks the points of the numbers being compared, in place of those marked before
+     * @param indices indices of the numbers being compared; empty to mark nothing
+     */
+    void compare(int indices[]){
+        for (int i : compared)
+            mark(i, false);
+        for (int i : indices)
+            mark(i, true);
+        compared = indices;
+    }
+
+    private void mark(int i, boolean on){
+        Node node = series.getData().get(i).getNode();
+        if (node == null)
+            return;
+        if (on)
+            node.getStyleClass().add("compared");
+        else
+            node.getStyleClass().remove("compared");
+    }
 }
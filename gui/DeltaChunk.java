@@ -0,0 +1,61 @@
+package gui;
+
+/**
+ * A batch of deltas a sort made between two pauses. A write delta holds the index written, the number it held
+ * and the number written over it; a swap shows up as two writes. A compare delta marks an index the sort
+ * compared, and holds the number there as both before and after, so applying or undoing it changes nothing.
+ * A step with more deltas than one chunk holds spans several chunks, the last of which is marked endOfStep.
+ * A sort that throws sends one last empty chunk, marked endOfSort and carrying what it threw.
+ */
+final class DeltaChunk {
+    static final int CAPACITY = 4096;
+    static final byte WRITE = 0;
+    static final byte COMPARE = 1;
+
+    final int[] index = new int[CAPACITY];
+    final int[] before = new int[CAPACITY];
+    final int[] after = new int[CAPACITY];
+    final byte[] kind = new byte[CAPACITY];
+    int size;
+    boolean endOfStep;
+    boolean endOfSort;
+    Throwable failure;
+
+    /**
+     * Records one write
+     * @return true if the chunk is now full
+     */
+    boolean add(int i, int oldValue, int newValue) {
+        return add(WRITE, i, oldValue, newValue);
+    }
+
+    /**
+     * Records that the number at i was compared
+     * @return true if the chunk is now full
+     */
+    boolean compare(int i, int value) {
+        return add(COMPARE, i, value, value);
+    }
+
+    private boolean add(byte k, int i, int oldValue, int newValue) {
+        kind[size] = k;
+        index[size] = i;
+        before[size] = oldValue;
+        after[size] = newValue;
+        return ++size == CAPACITY;
+    }
+
+    void apply(int numSet[]) {
+        for (int k = 0; k < size; k++) {
+            if (kind[k] == WRITE)
+                numSet[index[k]] = after[k];
+        }
+    }
+
+    void undo(int numSet[]) {
+        for (int k = size - 1; k >= 0; k--) {
+            if (kind[k] == WRITE)
+                numSet[index[k]] = before[k];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package gui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The UI's own copy of the numbers being sorted, kept up to date from the sorter's delta chunks.
+ * Applied steps are kept in a bounded history so they can be stepped back through and replayed; once the
+ * history holds more than its limit of writes the oldest steps are forgotten.
+ * Only to be used from the FX thread.
+ */
+final class DeltaPlayer {
+    static final long DEFAULT_HISTORY = 1 << 22;
+
+    private final int[] numSet;
+    private final long maxHistory;
+    private final ArrayDeque<List<DeltaChunk>> done = new ArrayDeque<>();
+    private final ArrayDeque<List<DeltaChunk>> undone = new ArrayDeque<>();
+    private List<DeltaChunk> building = new ArrayList<>();
+    private long history;
+    private boolean finished;
+    private Throwable failure;
+
+    /**
+     * @param numSet numbers as they were before the sort; owned by the player from now on
+     * @param maxHistory most writes kept for stepping back
+     */
+    DeltaPlayer(int numSet[], long maxHistory) {
+        this.numSet = numSet;
+        this.maxHistory = maxHistory;
+    }
+
+    /**
+     * @return the numbers as of the current step; only changed by this player
+     */
+    int[] numbers() {
+        return numSet;
+    }
+
+    /**
+     * Adds a chunk from the sorter. Chunks are held back until their step is complete, then the whole step is
+     * applied after replaying anything stepped back over.
+     * @param chunk next chunk from the sorter
+     * @return the step applied, or null if the step isn't complete yet
+     */
+    List<DeltaChunk> offer(DeltaChunk chunk) {
+        building.add(chunk);
+        if (!chunk.endOfStep)
+            return null;
+
+        while (forward() != null)
+            ;
+        List<DeltaChunk> step = building;
+        building = new ArrayList<>();
+        finished |= chunk.endOfSort;
+        if (chunk.failure != null)
+            failure = chunk.failure;
+        for (DeltaChunk c : step)
+            c.apply(numSet);
+        push(step);
+        return step;
+    }
+
+    /**
+     * Undoes the latest step
+     * @return the step undone, or null if there is no history left
+     */
+    List<DeltaChunk> back() {
+        List<DeltaChunk> step = done.pollLast();
+        if (step == null)
+            return null;
+        history -= size(step);
+        for (int k = step.size() - 1; k >= 0; k--)
+            step.get(k).undo(numSet);
+        undone.push(step);
+        return step;
+    }
+
+    /**
+     * Reapplies the last step undone
+     * @return the step reapplied, or null if nothing has been undone
+     */
+    List<DeltaChunk> forward() {
+        List<DeltaChunk> step = undone.poll();
+        if (step == null)
+            return null;
+        for (DeltaChunk c : step)
+            c.apply(numSet);
+        push(step);
+        return step;
+    }
+
+    boolean canBack() {
+        return !done.isEmpty();
+    }
+
+    boolean canForward() {
+        return !undone.isEmpty();
+    }
+
+    /**
+     * @return true once the sorter's last step has arrived
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return indices the sort was comparing at the end of the current step, to be highlighted; empty if it
+     * compared none, or if there is no current step
+     */
+    int[] compared() {
+        List<DeltaChunk> step = done.peekLast();
+        int count = 0;
+        int[] compared = new int[2];
+        if (step != null) {
+            for (DeltaChunk c : step) {
+                for (int k = 0; k < c.size; k++) {
+                    if (c.kind[k] == DeltaChunk.COMPARE) {
+                        if (count == compared.length)
+                            compared = Arrays.copyOf(compared, 2 * count);
+                        compared[count++] = c.index[k];
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(compared, count);
+    }
+
+    /**
+     * @return what the sort threw, or null if it finished normally or hasn't finished
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+
+    private void push(List<DeltaChunk> step) {
+        done.addLast(step);
+        history += size(step);
+        while (history > maxHistory && done.size() > 1)
+            history -= size(done.pollFirst());
+    }
+
+    private static long size(List<DeltaChunk> step) {
+        long size = 0;
+        for (DeltaChunk c : step)
+            size += c.size;
+        return size;
+    }
+}
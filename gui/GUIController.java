@@ -1,22 +1,32 @@
 package gui;
+import javafx.animation.AnimationTimer;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.chart.ScatterChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.layout.Pane;
+import javafx.stage.FileChooser;
+import sorting.Algorithm;
+import sorting.SortStats;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 import java.util.Random;
 import java.util.ResourceBundle;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.locks.ReentrantLock;
-
-import static java.lang.Thread.sleep;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Benjamin Baird
@@ -24,20 +34,30 @@ import static java.lang.Thread.sleep;
  * Description: Implements various sorting algorithms and provides a visual representation of their speeds
  **/
 public class GUIController implements Initializable {
-    private BlockingQueue <Integer[]> q;
-    private Integer randNumSet[];
-    private ReentrantLock lock;
-    private ArrayList<Thread> threadList;
-    private int stepCount;
+    // The scatter chart makes a node per number, so larger sets always go to the canvas
+    private static final int SCATTER_LIMIT = 5000;
+    private static final int[] SET_SIZES = {0, 10000, 100000, 1000000};
+    private static final int MAX_STEP_COUNT = 20;
+    // Delta chunks in flight between the sorter and the GUI before the sorter has to wait
+    private static final int QUEUE_CAPACITY = 64;
+    // Steps per second when playing; 0 is as fast as frames are drawn
+    private static final int[] STEP_RATES = {1, 5, 20, 60, 0};
+
+    // Sorts run on pooled daemon threads so a run costs a task, not a thread, and the pool grows to fit
+    // however many sorts are running at once
+    private static final ExecutorService SORT_POOL = Executors.newCachedThreadPool(new SorterThreadFactory());
+
+    private SpscQueue <DeltaChunk> q;
+    private int randNumSet[];
+    private Future<?> sortTask;
+    private Sorter sorter;
+    private DeltaPlayer player;
+    private boolean playing;
+    private double stepCredit;
+    private long lastFrame;
     private static ChartController chartController;
-    private final ObservableList<String> algNames = FXCollections.observableArrayList(
-            "Insertion Sort",
-            "Heap Sort",
-            "Bubble Sort",
-            "Merge Sort",
-            "Quick Sort",
-            "Radix Sort"
-    );
+    private static CanvasChartController canvasChartController;
+    private final ObservableList<String> algNames = FXCollections.observableArrayList();
 
     @FXML
     Label totalTimeLabel;
@@ -45,31 +65,43 @@ public class GUIController implements Initializable {
     @FXML
     Button stepBtn;
 
+    @FXML
+    Button backBtn;
+
+    @FXML
+    Button playBtn;
+
+    @FXML
+    private ComboBox<String> rateBox;
+
     @FXML
     private ComboBox<String> sortAlgBox;
 
     @FXML
     private Label timeLabel;
 
+    @FXML
+    private Label statsLabel;
+
+    @FXML
+    private ComboBox<String> sizeBox;
+
+    @FXML
+    private CheckBox canvasBox;
+
     @FXML
     private ScatterChart <Number, Number> chart;
 
+    @FXML
+    private Pane canvasPane;
+
     /**
      * Performs any clean up required when the algorithm selection has changed
      */
     public void comboSelected(){
-        chartController.populateChart(randNumSet);
-        stepBtn.setDisable(false);
-        stepCount = 0;
-        if (threadList.size() > 0) {
-            while (threadList.size() > 0){
-                threadList.get(0).interrupt();
-                threadList.remove(0);
-            }
-        }
-        q = new LinkedBlockingQueue<>();
-        timeLabel.setText("");
-        totalTimeLabel.setText("");
+        drawChart(randNumSet, true);
+        stopSort();
+        clearLabels();
     }
 
     /**
@@ -78,18 +110,18 @@ public class GUIController implements Initializable {
     @FXML
     protected void genNumbers() {
         Random ran = new Random();
-        int numSetSize = ran.nextInt(600) + 400;
+        int numSetSize = SET_SIZES[Math.max(0, sizeBox.getSelectionModel().getSelectedIndex())];
+        if (numSetSize == 0)
+            numSetSize = ran.nextInt(600) + 400;
 //        int numSetSize = 10;
-        randNumSet = new Integer[numSetSize];
+        randNumSet = new int[numSetSize];
         for (int i = 0; i < numSetSize; i++) {
             randNumSet[i] = ran.nextInt(1001);
         }
-        chartController.populateChart(randNumSet);
-        stepBtn.setDisable(false);
-        this.stepCount = 0;
-        q = new LinkedBlockingQueue<>();
-        timeLabel.setText("");
-        totalTimeLabel.setText("");
+        canvasBox.setDisable(numSetSize > SCATTER_LIMIT);
+        drawChart(randNumSet, true);
+        stopSort();
+        clearLabels();
     }
 
     /**
@@ -99,16 +131,27 @@ public class GUIController implements Initializable {
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        sortAlgBox.setItems(algNames);
-        sortAlgBox.getSelectionModel().select(0);
-
         chartController = new ChartController(chart);
+        canvasChartController = new CanvasChartController(canvasPane, CanvasChartController.DEFAULT_MAX_FPS);
+
         genNumbers();
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pump(now);
+            }
+        }.start();
 
-        this.lock = new ReentrantLock();
-        this.q = new LinkedBlockingQueue<>();
-        this.threadList = new ArrayList<>(1);
-        this.stepCount = 0;
+        // Selecting fires the boxes' actions, so only fill them in once everything above is ready
+        for (Algorithm algorithm : Algorithm.values())
+            algNames.add(algorithm.displayName());
+        sortAlgBox.setItems(algNames);
+        sortAlgBox.getSelectionModel().select(0);
+        sizeBox.setItems(FXCollections.observableArrayList("400 - 1,000", "10,000", "100,000", "1,000,000"));
+        sizeBox.getSelectionModel().select(0);
+        rateBox.setItems(FXCollections.observableArrayList("1 step/s", "5 steps/s", "20 steps/s", "60 steps/s",
+                "Unlimited"));
+        rateBox.getSelectionModel().select(2);
     }
 
     /**
@@ -117,85 +160,294 @@ public class GUIController implements Initializable {
     public void time(){
         long totalTime = 0;
         for (int i = 0; i < 100; i++) {
-            if (i == 99)
-                totalTime += sort(false, true);
-            totalTime += sort(false, false);
+            // Only draw the last trial
+            totalTime += timeSort(i == 99);
+            if (sorter.getFailure() != null) {
+                updateStepButtons();
+                showStats();
+                return;
+            }
         }
         long avg = totalTime/100;
-        timeLabel.setText("Average time over 100 trails: " + avg + "ns");
+        timeLabel.setText(sorter.describe() + " average time over 100 trails: " + avg + "ns");
         totalTimeLabel.setText("Total Time for 100 trails: " + totalTime/1000000 +"ms");
+        stepBtn.setDisable(false);
+        backBtn.setDisable(player == null || !player.canBack());
+        showStats();
     }
 
     /**
-     * Calls the sort algorithm with step=true
+     * Asks for one more step; it is drawn on the next frame it is ready for
      */
     @FXML
     protected void handleStep(){
-        timeLabel.setText("");
-        totalTimeLabel.setText("");
-        sort(true, true);
+        clearLabels();
+        if (player == null || player.isFinished() && !player.canForward())
+            startSort(true, true);
+        stepCredit++;
     }
 
     /**
-     * Starts the sorting algorithm thread
-     * @param step true if wise to step through; false if just want it to sort
-     * @return time it took to sort
+     * Starts or pauses stepping at the selected rate
      */
-    private long sort(boolean step, boolean draw){
-        int maxStepCount = 20;
-        long endTime = 0, startTime = 0;
+    @FXML
+    protected void handlePlay(){
+        playing = !playing;
+        playBtn.setText(playing ? "Pause" : "Play");
+        if (playing && (player == null || player.isFinished() && !player.canForward())) {
+            clearLabels();
+            startSort(true, true);
+        }
+    }
 
-        // Kill off any previous threads
-        if ((!step || ((stepCount == 0 || threadList.get(0).getState() == Thread.State.TERMINATED) && threadList.size() > 0))) {
-            while (threadList.size() > 0){
-                threadList.get(0).interrupt();
-                threadList.remove(0);
-            }
-            q = new LinkedBlockingQueue<>();  // New q, bug fix; old one is contaminated
-            stepCount = 0;
-            stepBtn.setDisable(false);
+    /**
+     * Steps back through the deltas already received
+     */
+    @FXML
+    protected void handleBack(){
+        if (player != null && player.canBack())
+            drawStep(player.back());
+        updateStepButtons();
+    }
+
+    private void updateStepButtons(){
+        backBtn.setDisable(player == null || !player.canBack());
+        stepBtn.setDisable(player != null && player.isFinished() && !player.canForward());
+        playBtn.setText(playing ? "Pause" : "Play");
+    }
+
+    /**
+     * Runs once per frame: earns step credit at the selected rate while playing, then draws as many ready
+     * steps as the credit allows. Steps that aren't ready yet are simply tried again next frame, so the FX
+     * thread never waits on the sorter.
+     * @param now frame time in nanoseconds
+     */
+    private void pump(long now){
+        long elapsed = lastFrame == 0 ? 0 : now - lastFrame;
+        lastFrame = now;
+        if (player == null)
+            return;
+
+        int rate = STEP_RATES[Math.max(0, rateBox.getSelectionModel().getSelectedIndex())];
+        if (playing) {
+            // Let at most a tenth of a second's worth of steps bank up while the sorter catches up
+            stepCredit = rate == 0 ? Double.POSITIVE_INFINITY
+                    : Math.min(stepCredit + rate * (elapsed / 1e9), Math.max(1, rate / 10.0));
         }
+        if (stepCredit < 1)
+            return;
 
-        try {
-            if (lock.isLocked())
-                lock.unlock();
-
-            // Create a new instance of a sort
-            if (stepCount == 0) {
-                Sorter so = new Sorter(randNumSet, sortAlgBox.getValue(), step, maxStepCount, lock, q);
-                threadList.add(new Thread(so));
-                startTime = System.nanoTime();
-                threadList.get(0).start();
-            }
+        boolean drawn = false;
+        while (stepCredit >= 1) {
+            List<DeltaChunk> step = player.canForward() ? player.forward() : nextStep();
+            if (step == null)
+                break;
+            drawStep(step);
+            stepCredit--;
+            drawn = true;
+        }
+        if (Double.isInfinite(stepCredit))
+            stepCredit = 0;
+        if (player.isFinished() && !player.canForward()) {
+            playing = false;
+            stepCredit = 0;
+        }
+        if (drawn) {
+            updateStepButtons();
+            showStats();
+        }
+    }
 
-            // Disable step button if done sorting
-            if (step) {
-                if (stepCount > maxStepCount || (threadList.get(0).getState() == Thread.State.TERMINATED)) {
-                    stepBtn.setDisable(true);
-                }
-                stepCount++;
+    /**
+     * Applies the sorter's next step if all of it has arrived, and lets the sorter start on the one after
+     * @return the step applied, or null if it isn't ready yet
+     */
+    private List<DeltaChunk> nextStep(){
+        DeltaChunk chunk;
+        while ((chunk = q.poll()) != null) {
+            List<DeltaChunk> step = player.offer(chunk);
+            if (step != null) {
+                if (!chunk.endOfSort)
+                    sorter.resume();
+                return step;
             }
-
-        } catch (Exception e) {
-//            e.printStackTrace();
         }
+        return null;
+    }
+
+    /**
+     * Opens a window racing the algorithms against each other on the current numbers
+     */
+    @FXML
+    protected void handleRace(){
+        new RaceController(randNumSet, SORT_POOL).show();
+    }
 
+    /**
+     * Writes the operation counts of the last finished sort to a CSV or JSON file
+     */
+    @FXML
+    protected void exportStats(){
+        SortStats stats = sorter == null ? null : sorter.getStats();
+        if (stats == null)
+            return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Stats");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"));
+        File file = chooser.showSaveDialog(statsLabel.getScene().getWindow());
+        if (file == null)
+            return;
+
+        String name = sorter.describe();
+        String text;
+        if (file.getName().endsWith(".json"))
+            text = "{\"algorithm\":\"" + name + "\"," + stats.toJson().substring(1) + "\n";
+        else
+            text = "algorithm," + SortStats.CSV_HEADER + "\n" + name + "," + stats.toCsv() + "\n";
         try {
-            // Wait for the sorting algorithm to complete, for timings
-            if (!step)
-                threadList.get(0).join();
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            statsLabel.setText("Export failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows the operation counts of the last sort once it has finished, or what it threw if it failed
+     */
+    private void showStats(){
+        SortStats stats = sorter == null ? null : sorter.getStats();
+        Throwable failure = sorter == null ? null : sorter.getFailure();
+        if (failure != null)
+            statsLabel.setText(sorter.describe() + " failed: " + failure);
+        else if (stats == null)
+            statsLabel.setText("");
+        else if (!SortStats.ENABLED)
+            statsLabel.setText("Run with -Dsorting.stats=true to count operations");
+        else
+            statsLabel.setText(stats.getComparisons() + " comparisons, " + stats.getSwaps() + " swaps\n"
+                    + stats.getReads() + " reads, " + stats.getWrites() + " writes\n"
+                    + "Depth " + stats.getMaxDepth() + ", " + stats.getTempBytes() + " temp bytes");
+    }
+
+    /**
+     * Redraws the current numbers with the other renderer
+     */
+    @FXML
+    protected void rendererSelected(){
+        drawChart(player == null ? randNumSet : player.numbers(), true);
+    }
+
+    /**
+     * Shows numbers on the scatter chart, or on the canvas if asked for or if there are too many for the chart
+     * @param numSet numbers to show
+     * @param reset true for a new set of numbers, false for a step of the current sort
+     */
+    private void drawChart(int numSet[], boolean reset){
+        boolean canvas = useCanvas(numSet);
+        canvasPane.setVisible(canvas);
+        chart.setVisible(!canvas);
+        if (!canvas)
+            chartController.populateChart(numSet);
+        else if (reset)
+            canvasChartController.reset(numSet);
+        else
+            canvasChartController.populateChart(numSet);
+    }
+
+    /**
+     * Redraws just the numbers a step changed
+     * @param step deltas just applied to, or undone from, the player's numbers
+     */
+    private void drawStep(List<DeltaChunk> step){
+        int[] numSet = player.numbers();
+        boolean canvas = useCanvas(numSet);
+        for (DeltaChunk chunk : step) {
+            if (canvas)
+                canvasChartController.update(numSet, chunk.index, chunk.size);
             else
-                sleep(10);
-            lock.lock();
-            endTime= System.nanoTime();
+                chartController.update(numSet, chunk.index, chunk.size);
+        }
+        if (canvas)
+            canvasChartController.compare(numSet, player.compared());
+        else
+            chartController.compare(player.compared());
+    }
+
+    private boolean useCanvas(int numSet[]){
+        return canvasBox.isSelected() || numSet.length > SCATTER_LIMIT;
+    }
 
-            // Update the chart
-            Integer[] numSet = q.take();
+    private void clearLabels(){
+        timeLabel.setText("");
+        totalTimeLabel.setText("");
+        statsLabel.setText("");
+    }
+
+    /**
+     * Starts the sorting algorithm on the pool, cancelling any sort still running
+     * @param step true if wise to step through; false if just want it to sort
+     * @param draw true to show the numbers as the sort starts
+     */
+    private void startSort(boolean step, boolean draw){
+        stopSort();
+        q = new SpscQueue<>(QUEUE_CAPACITY);
+        sorter = new Sorter(randNumSet, sortAlgBox.getValue(), step, MAX_STEP_COUNT, q);
+        player = new DeltaPlayer(randNumSet.clone(), DeltaPlayer.DEFAULT_HISTORY);
+        if (draw)
+            drawChart(player.numbers(), true);
+        sortTask = SORT_POOL.submit(sorter);
+    }
+
+    /**
+     * Cancels the running sort, if any, and forgets its steps
+     */
+    private void stopSort(){
+        if (sortTask != null)
+            sortTask.cancel(true);
+        sortTask = null;
+        sorter = null;
+        player = null;
+        playing = false;
+        stepCredit = 0;
+        updateStepButtons();
+    }
+
+    /**
+     * Runs one sort to completion, taking its result on this thread as it arrives
+     * @param draw true to show the result
+     * @return time it took to sort
+     */
+    private long timeSort(boolean draw){
+        startSort(false, draw);
+        try {
+            List<DeltaChunk> last = null;
+            while (!player.isFinished()) {
+                List<DeltaChunk> step = player.offer(q.take());
+                if (step != null)
+                    last = step;
+            }
             if (draw)
-                chartController.populateChart(numSet);
-        } catch (Exception e) {
+                drawStep(last);
+        } catch (InterruptedException e) {
             e.printStackTrace();
         }
-        return (endTime - startTime);
+        return sorter.getSortTime();
+    }
+
+    /**
+     * Names the pool's threads and makes them daemons, so a sort left running doesn't keep the app alive
+     */
+    private static final class SorterThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sorter-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
     }
 }
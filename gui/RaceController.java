@@ -0,0 +1,211 @@
+package gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import sorting.Algorithm;
+import sorting.SortStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Window that races the chosen algorithms against each other on identical copies of the same numbers.
+ * Every sort runs on its own pool thread and is drawn in its own panel, while a leaderboard shows how long
+ * each has been sorting and, with -Dsorting.stats=true, its operation counts.
+ * Sorts step as fast as their panels take the steps; time spent handing steps over is left out of the times.
+ */
+class RaceController {
+    private static final int MAX_STEP_COUNT = 200;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int COLUMNS = 3;
+    // Quadratic sorts are left unticked above this many numbers
+    private static final int QUADRATIC_LIMIT = 20000;
+    private static final long LEADERBOARD_INTERVAL = 100000000L;
+
+    private final int[] numSet;
+    private final ExecutorService pool;
+    private final Stage stage = new Stage();
+    private final GridPane panels = new GridPane();
+    private final Label leaderboard = new Label();
+    private final List<CheckBox> choices = new ArrayList<>();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final AnimationTimer timer;
+    private long lastLeaderboard;
+
+    /**
+     * @param numSet numbers every algorithm sorts a copy of
+     * @param pool runs the sorts
+     */
+    RaceController(int numSet[], ExecutorService pool) {
+        this.numSet = numSet.clone();
+        this.pool = pool;
+
+        VBox side = new VBox(5);
+        side.setPadding(new Insets(10));
+        for (Algorithm algorithm : Algorithm.values()) {
+            CheckBox box = new CheckBox(algorithm.displayName());
+            boolean quadratic = algorithm == Algorithm.INSERTION || algorithm == Algorithm.BUBBLE;
+            box.setSelected(!quadratic || numSet.length <= QUADRATIC_LIMIT);
+            box.setUserData(algorithm);
+            choices.add(box);
+            side.getChildren().add(box);
+        }
+        Button startBtn = new Button("Start Race");
+        startBtn.setOnAction(e -> start());
+        leaderboard.setStyle("-fx-font-family: monospace;");
+        side.getChildren().addAll(startBtn, leaderboard);
+
+        panels.setHgap(10);
+        panels.setVgap(10);
+        panels.setPadding(new Insets(10));
+        BorderPane root = new BorderPane(new ScrollPane(panels));
+        root.setLeft(side);
+
+        stage.setTitle("Race: " + numSet.length + " numbers");
+        stage.setScene(new Scene(root, 1400, 800));
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pump(now);
+            }
+        };
+        stage.setOnHidden(e -> {
+            stop();
+            timer.stop();
+        });
+    }
+
+    void show() {
+        stage.show();
+        timer.start();
+    }
+
+    /**
+     * Cancels any race in progress and starts the ticked algorithms off together
+     */
+    private void start() {
+        stop();
+        for (CheckBox box : choices) {
+            if (box.isSelected()) {
+                Lane lane = new Lane((Algorithm) box.getUserData());
+                panels.add(lane.panel, lanes.size() % COLUMNS, lanes.size() / COLUMNS);
+                lanes.add(lane);
+            }
+        }
+        // Submit only once every lane is set up, so no sort gets a head start
+        for (Lane lane : lanes)
+            lane.task = pool.submit(lane.sorter);
+    }
+
+    private void stop() {
+        for (Lane lane : lanes) {
+            if (lane.task != null)
+                lane.task.cancel(true);
+            lane.chart.dispose();
+        }
+        lanes.clear();
+        panels.getChildren().clear();
+    }
+
+    private void pump(long now) {
+        for (Lane lane : lanes)
+            lane.drain();
+        if (now - lastLeaderboard >= LEADERBOARD_INTERVAL) {
+            lastLeaderboard = now;
+            updateLeaderboard();
+        }
+    }
+
+    /**
+     * Ranks finished sorts by their time, ahead of those still running or failed
+     */
+    private void updateLeaderboard() {
+        List<Lane> ranked = new ArrayList<>(lanes);
+        ranked.sort((a, b) -> {
+            boolean aDone = succeeded(a.sorter), bDone = succeeded(b.sorter);
+            if (aDone != bDone)
+                return aDone ? -1 : 1;
+            return Long.compare(a.sorter.getElapsedTime(), b.sorter.getElapsedTime());
+        });
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < ranked.size(); i++) {
+            Sorter sorter = ranked.get(i).sorter;
+            text.append(String.format("%2d. %-32s %10.2f ms %s", i + 1, sorter.describe(),
+                    sorter.getElapsedTime() / 1e6, status(sorter)));
+            if (SortStats.ENABLED) {
+                SortStats stats = sorter.getLiveStats();
+                text.append(String.format("%,15d cmp %,15d swp %,15d rd %,15d wr", stats.getComparisons(),
+                        stats.getSwaps(), stats.getReads(), stats.getWrites()));
+            }
+            text.append('\n');
+        }
+        if (!SortStats.ENABLED && !ranked.isEmpty())
+            text.append("Run with -Dsorting.stats=true to count operations");
+        leaderboard.setText(text.toString());
+    }
+
+    private static boolean succeeded(Sorter sorter) {
+        return sorter.isFinished() && sorter.getFailure() == null;
+    }
+
+    private static String status(Sorter sorter) {
+        Throwable failure = sorter.getFailure();
+        if (failure != null)
+            return "failed (" + failure.getClass().getSimpleName() + ")";
+        return sorter.isFinished() ? "done" : "    ";
+    }
+
+    /**
+     * One algorithm's sort, its own copy of the numbers and its panel
+     */
+    private final class Lane {
+        final SpscQueue<DeltaChunk> q = new SpscQueue<>(QUEUE_CAPACITY);
+        final Sorter sorter;
+        final DeltaPlayer player;
+        final CanvasChartController chart;
+        final VBox panel;
+        Future<?> task;
+
+        Lane(Algorithm algorithm) {
+            sorter = new Sorter(numSet, algorithm.displayName(), true, MAX_STEP_COUNT, q);
+            // Nothing steps back in a race, so keep no more history than the player needs
+            player = new DeltaPlayer(numSet.clone(), 0);
+
+            Pane host = new Pane();
+            host.setPrefSize(320, 200);
+            panel = new VBox(new Label(algorithm.displayName()), host);
+            chart = new CanvasChartController(host, CanvasChartController.DEFAULT_MAX_FPS);
+            chart.reset(player.numbers());
+        }
+
+        /**
+         * Draws every step that has arrived, letting the sorter go on after each
+         */
+        void drain() {
+            DeltaChunk chunk;
+            while ((chunk = q.poll()) != null) {
+                List<DeltaChunk> step = player.offer(chunk);
+                if (step == null)
+                    continue;
+                for (DeltaChunk c : step)
+                    chart.update(player.numbers(), c.index, c.size);
+                chart.compare(player.numbers(), player.compared());
+                if (!chunk.endOfSort)
+                    sorter.resume();
+            }
+        }
+    }
+}
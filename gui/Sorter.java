@@ -1,509 +1,311 @@
 package gui;
 
-import java.util.ArrayList;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.locks.ReentrantLock;
+import sorting.Algorithm;
+import sorting.AutoSort;
+import sorting.SortObserver;
+import sorting.SortStats;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author Benjamin Baird
  * Date Last Updated: Sept 27, 2016
- * Contains all the sorting algorithms used
+ * Runs the selected sorting algorithm for the GUI.
+ * The algorithms themselves live in the headless sorting package and work on primitive int arrays;
+ * this class sorts a copy of the GUI's numbers. In step mode the algorithm reports each position it writes
+ * and compares as it goes. At every pause just the positions written since the last one are checked against
+ * a shadow copy of what the GUI has already been sent, and those that differ are handed over, batched into
+ * {@link DeltaChunk}s, so a step costs what the sort did in it rather than a pass over the whole array.
+ * Of the comparisons only the step's last is sent, as that is the one on screen while the step is shown.
+ * The final result is checked against the whole shadow once, which catches anything the algorithm doesn't
+ * report, such as a parallel sort's writes. The GUI never sees the array being sorted.
+ * In step mode the sorter runs one step ahead of the GUI: after handing over a step it parks until the GUI
+ * grants the next one with {@link #resume()}. Interrupting the thread cancels the sort. If the algorithm
+ * throws, the GUI is still sent a last chunk, carrying the failure, so it never waits for a sort that has died.
  */
 public class Sorter implements Runnable {
-    private final Integer [] randNumSet;
-    private final String sortAlg;
+    // Numbers as last sent to the GUI; starts as the unsorted numbers
+    private final int [] shadow;
+    private final Algorithm sortAlg;
+    private volatile Algorithm engine;
     private final boolean step;
-    private static int counter;
-    private final BlockingQueue <Integer[]> q;
+    private int counter;
+    private final SpscQueue <DeltaChunk> q;
     private final int maxStepCount;
-    private final ReentrantLock lock;
-
-    public Sorter(Integer [] randNumSet, String sortAlg, boolean step, int maxStepCount,ReentrantLock lock, BlockingQueue <Integer[]> q ){
-        this.randNumSet = randNumSet.clone();
-        this.sortAlg = sortAlg;
+    private final AtomicInteger permits = new AtomicInteger();
+    private volatile Thread runner;
+    private final SortStats stats = new SortStats();
+    // Positions written during the step in progress, touchedStep[i] being the step that last wrote i, and the
+    // step's last comparison; only used by the sorting thread
+    private int[] touched, touchedStep;
+    private int touchedCount, steps = 1;
+    private int comparedI = -1, comparedJ = -1;
+    private volatile boolean finished;
+    private volatile Throwable failure;
+    // Time spent handing steps over and waiting for the GUI is left out of the sort's time
+    private volatile long startTime, pauseStart, pausedTime, sortTime;
+
+    public Sorter(int [] randNumSet, String sortAlg, boolean step, int maxStepCount, SpscQueue <DeltaChunk> q ){
+        this.shadow = randNumSet.clone();
+        this.sortAlg = Algorithm.forName(sortAlg);
         this.step = step;
-        this.lock = lock;
-        Sorter.counter = 0;
         this.q = q;
         this.maxStepCount = maxStepCount;
     }
 
     /**
-     * Compares with previous number and checks if it is > than or < than and positions itself in ascending order
-     * @param randomNums random numbers to be sorted
-     * @param step step through or fully sort
+     * Prints an arraylist of integers to console
+     * @param numSet the list of numbers to print
      */
-    private void insertionSort(Integer randomNums[], boolean step){
-        Integer numSet[]= randomNums.clone();
-        int curNum;
-        int stepCount = 1;
-
-        //Loop through all the numbers
-        for (int i = 1; i < numSet.length; i++){
-            // Stepwise pause
-            if (step && stepCount % (numSet.length/maxStepCount) == 0){
-                suspendStep(numSet);
-            }
-
-            // Figure out where to insert the number and shift numbers
-            int j = i;
-            while ( j > 0 && (numSet[j-1] > numSet[j])) {
-                curNum = numSet[j];
-                numSet[j] = numSet[j-1];
-                numSet[j - 1] = curNum;
-                j--;
-            }
-            stepCount++;
+    private void printNumList (int numSet[]) {
+        for (int number:
+                numSet) {
+            System.out.println(number);
         }
-        addToQ(numSet);
     }
 
     /**
-     * Go through array, largest number "floats" to the last slot, repeat but with size - 1
-     * @param randomNums random
-     * @param step step through sort or fully sort
+     * Creates an observer which records where the sort writes and compares, and pauses the sort every interval
+     * steps
+     * @param numSet the array being sorted
+     * @param interval number of steps between pauses
+     * @return step observer
      */
-    private void bubbleSort(Integer randomNums[], boolean step) {
-        Integer numSet[] = randomNums.clone();
-        int stepCount = 0;
-        boolean swapped = true;
-
-
-        while (swapped) {
-            swapped = false;
-
-            // Don't need to check the last item, since we know it is largest
-            for (int i = 1; i < numSet.length - stepCount; i++) {
-                if (numSet[i] < numSet[i-1]){
-                    // Swap
-                    Integer temp = numSet[i];
-                    numSet[i] = numSet[i - 1];
-                    numSet[i - 1] = temp;
-                    swapped = true;
-                }
-            }
-            stepCount++;
-
-            // Stepwise pause
-            if (step && stepCount % (numSet.length/maxStepCount) == 0){
-                suspendStep(numSet);
+    private SortObserver stepObserver(final int numSet[], final int interval) {
+        touched = new int[numSet.length];
+        touchedStep = new int[numSet.length];
+        return new SortObserver() {
+            @Override
+            public void step() {
+                counter++;
+                if (counter % interval == 0)
+                    suspendStep(numSet);
             }
-        }
-        addToQ(numSet);
-    }
 
-
-    /**
-     * Repairs a heap; can be used for sub trees
-     * @param heap the main heap
-     * @param start the position of the root node
-     * @param end the end of the heap
-     * @return modified heap
-     */
-    private Integer[] siftDown(Integer heap[], int start, int end){
-        int root = start;
-        while((2 * root + 1) <= end) {
-            int child = 2 * root + 1; // Left Child
-            int swap = root;
-            if (heap[swap] < heap[child]) {
-                swap = child;
+            @Override
+            public void write(int i) {
+                touch(i);
             }
 
-            if ((child + 1) <= end && heap[swap] < heap[child+1]){
-                swap = child + 1;
+            @Override
+            public void write(int from, int to) {
+                for (int i = from; i < to; i++)
+                    touch(i);
             }
 
-            if (swap == root) {
-                return heap;
-            } else {
-                Integer temp = heap[root];
-                heap[root] = heap[swap];
-                heap[swap] = temp;
-                root = swap;
+            @Override
+            public void compare(int i, int j) {
+                comparedI = i;
+                comparedJ = j;
             }
-        }
-        return heap;
+        };
     }
 
     /**
-     * Puts the input array into a max-heap
-     * @param heap randomly assorted integer array
-     * @return Heapified max-heap
+     * Notes that the sort wrote position i during this step, once however often it is written
      */
-    private Integer[] heapify(Integer heap[]) {
-        int start = (heap.length-1)/2;
-        while (start >= 0){
-
-            heap = siftDown(heap,start, heap.length - 1);
-            start--;
+    private void touch(int i) {
+        if (touchedStep[i] != steps) {
+            touchedStep[i] = steps;
+            touched[touchedCount++] = i;
         }
-
-        return heap;
     }
 
     /**
-     * Moves the root of the heap to the last element until all items have been processed
-     * @param randomNums random numbers to be sorted
-     * @param step step through sort
+     * Calls the selected sort algorithm
      */
-    private void heapSort(Integer randomNums[], boolean step){
-        Integer heap[] = heapify(randomNums);
-        int end = heap.length - 1;
-        int stepCount = 1;
-        while (end > 0) {
-            if (step && stepCount % (heap.length/maxStepCount) == 0){
-                suspendStep(heap);
-            }
-            Integer temp = heap[end];
-            heap[end] = heap[0];
-            heap[0] = temp;
-            end--;
-            heap = siftDown(heap, 0, end);
-            stepCount++;
-        }
-        addToQ(heap);
+    private void sort(boolean step){
+        int numSet[] = shadow.clone();
+
+        // Auto picks its algorithm up front, inside the timing, so steps can be spaced for the one that runs
+        startTime = System.nanoTime();
+        Algorithm engine = sortAlg == Algorithm.AUTO ? AutoSort.DEFAULT.choose(numSet, 0, numSet.length) : sortAlg;
+        this.engine = engine;
+
+        // Radix sort only has a handful of passes, so pause on every one of them
+        int interval = engine == Algorithm.RADIX ? 1 : Math.max(1, numSet.length / maxStepCount);
+        SortObserver observer = step ? stepObserver(numSet, interval) : null;
+        stats.record(() -> engine.sort(numSet, 0, numSet.length, observer));
+        sortTime = System.nanoTime() - startTime - pausedTime;
+        finished = true;
+
+        // Catch whatever the algorithm didn't report by looking at every number, once
+        touchedCount = 0;
+        comparedI = -1;
+        sendDeltas(numSet, null, numSet.length, true);
     }
 
     /**
-     * Merge the workset into the dataset
-     * @param dataSet the finalized set
-     * @param begin starting position
-     * @param middle middle position
-     * @param end end position
-     * @param workSet work array with data that needs to be transfered to the dataSet
+     * Sends the GUI every number at the given positions that differs from what it was last sent, followed by
+     * the step's last comparison, and brings the shadow copy up to date
+     * @param numSet the array being sorted
+     * @param positions positions to look at, or null for every one
+     * @param count how many positions to look at
+     * @param endOfSort true if this is the final result
      */
-    private void mergeSortMerge(Integer dataSet[], int begin, int middle, int end, Integer workSet[]){
-        int i = begin, j = middle;
-        for (int k= begin; k < end; k++) {
-            if (i < middle && (j >= end || dataSet[i] <= dataSet[j])) {
-                workSet[k] = dataSet[i];
-                i++;
-            } else {
-                workSet[k] = dataSet[j];
-                j++;
+    private void sendDeltas(int numSet[], int positions[], int count, boolean endOfSort) {
+        DeltaChunk chunk = new DeltaChunk();
+        for (int k = 0; k < count; k++) {
+            int i = positions == null ? k : positions[k];
+            int v = numSet[i];
+            if (v != shadow[i]) {
+                if (chunk.add(i, shadow[i], v)) {
+                    addToQ(chunk);
+                    chunk = new DeltaChunk();
+                }
+                shadow[i] = v;
             }
         }
-    }
-
-    /**
-     * Splits the dataset in half
-     * @param dataSet data to split
-     * @param begin start position in dataset
-     * @param end index of last element
-     * @param workSet an array to work in
-     */
-    private void mergeSortSplit(Integer dataSet[], boolean step, int begin, int end, Integer workSet[]){
-        if (end - begin < 2)
-            return;
-
-        // Split runs in half
-        int middle = (end + begin)/2;
-        mergeSortSplit(dataSet, step, begin, middle, workSet);
-        mergeSortSplit(dataSet, step, middle, end, workSet);
-        mergeSortMerge(dataSet, begin, middle, end, workSet);
-        Sorter.counter++;
-
-        if (step && Sorter.counter %  (workSet.length / 20) == 0) {
-            suspendStep(dataSet);
+        if (comparedI >= 0) {
+            for (int i : new int[]{comparedI, comparedJ}) {
+                if (chunk.compare(i, shadow[i])) {
+                    addToQ(chunk);
+                    chunk = new DeltaChunk();
+                }
+            }
         }
-
-        System.arraycopy(workSet, begin, dataSet, begin, end - begin);
+        chunk.endOfStep = true;
+        chunk.endOfSort = endOfSort;
+        addToQ(chunk);
     }
 
     /**
-     * Begins the merge sort process
-     * @param randomNums numbers to be sorted
-     * @param step step through sort
+     * @return operation counts of the finished sort, or null while it is still running or if it failed
      */
-    private void mergeSort(Integer randomNums[], boolean step){
-        Sorter.counter = 0;
-        Integer work[] = new Integer[randomNums.length];
-        Integer numSet[] = randomNums.clone();
-        mergeSortSplit(numSet, step, 0, randomNums.length, work);
-        addToQ(numSet);
+    public SortStats getStats() {
+        return finished && failure == null ? stats : null;
     }
 
     /**
-     * Finds a number to pivot on
-     * @param dataSet numbers to sort
-     * @param low start of array
-     * @param high end of array
-     * @return pivot index
+     * @return operation counts so far, for a live display; may lag behind the sort
      */
-    private int partition (Integer dataSet[], int low, int high){
-        int pivot = dataSet[high];
-        int i = low;
-        for ( int j = low; j <= high - 1; j ++) {
-            if (dataSet[j] <= pivot) {
-                Integer temp = dataSet[i];
-                dataSet[i] = dataSet[j];
-                dataSet[j] = temp;
-                i++;
-            }
-        }
-        Integer temp = dataSet[i];
-        dataSet[i] = dataSet[high];
-        dataSet[high] = temp;
-
-        return i;
+    public SortStats getLiveStats() {
+        return stats;
     }
 
-    /**
-     * Recursively finds a pivot point to sort the data
-     * @param dataSet numbers to be sorted
-     * @param low start index
-     * @param high end index
-     * @param step step through sort or fully sort
-     */
-    private void quickSort(Integer dataSet[], int low, int high, boolean step) {
-        if (low < high) {
-            int p = partition(dataSet, low, high);
-            quickSort(dataSet, low, p - 1, step);
-            quickSort(dataSet, p + 1, high, step);
-            Sorter.counter++;
-
-            if (step && Sorter.counter % (dataSet.length/maxStepCount) == 0){
-                suspendStep(dataSet);
-            }
-        }
+    public Algorithm getAlgorithm() {
+        return sortAlg;
     }
 
     /**
-     * Intermediate step to print the sorted numbers and call the sorting method
-     * @param randNum random number set
-     * @param step pause every few steps or no pauses
+     * @return the algorithm actually sorting, which differs from {@link #getAlgorithm()} only for Auto;
+     * null until the sort starts
      */
-    private void quickSort (Integer randNum[], boolean step) {
-        Integer numSet[] = randNum.clone();
-        quickSort(numSet, 0, numSet.length - 1, step);
-        addToQ(numSet);
+    public Algorithm getEngine() {
+        return engine;
     }
 
     /**
-     * Sorts the numberset based on it's bucket position
-     * @param numSet number set to be sorted
-     * @param bucketCount number of digits in each category [0 - 9]
-     * @param digit which digit we are one
-     * @param radix what radix to use
-     * @return sorted numbers in an integer array
+     * @return the algorithm's name, followed by the one Auto chose once it has chosen
      */
-    private Integer [] radixSortJoin (Integer [] numSet, Integer [] bucketCount, int digit, int radix) {
-        Integer [] sortedSet = new Integer[numSet.length];
-        for (int i = 1; i < bucketCount.length; i ++) {
-            bucketCount[i] += bucketCount[i-1];
-        }
-        for (int i = (numSet.length - 1); i >= 0; i--) {
-            int bucketIndex = getRadixBucket(numSet[i], digit, radix);
-            int sortedIndex = bucketCount[bucketIndex] - 1;
-            sortedSet[sortedIndex] = numSet[i];
-            bucketCount[bucketIndex]--;
-        }
-        return sortedSet;
+    public String describe() {
+        Algorithm engine = this.engine;
+        if (engine == null || engine == sortAlg)
+            return sortAlg.displayName();
+        return sortAlg.displayName() + " (" + engine.displayName() + ")";
     }
-/*
-    /**
-     * Merges buckets from 0 - 9 into an array
-     * @param buckets list of all the buckets
-     * @param numSet array to store sorted buckets
-     */
-//    private void radixSortJoin(ArrayList<ArrayList<Integer>> buckets, Integer numSet[]){
-//         // Rejoin
-//        int index = -1;
-//        for(ArrayList<Integer> bucket:
-//                buckets){
-//            for (Integer num:
-//                    bucket) {
-//                index++;
-//                numSet[index] = num;
-//            }
-//        }
-//    }
 
     /**
-     * Returns the bucket index of a number given current digit position and radix
-     * @param n number to index
-     * @param digit current position in the number
-     * @param radix which base to use
-     * @return bucket index
+     * @return nanoseconds spent in the sort itself, not counting handing steps to the GUI; 0 until finished
      */
-    private int getRadixBucket(int n, int digit, int radix) {
-        return (n/digit) % radix;
+    public long getSortTime() {
+        return sortTime;
     }
 
     /**
-     * Sort from least significant digit to most (Right to left) maintaining order
-     * @param randomNums numbers to be sorted
-     * @param step step through or fully sort
+     * @return nanoseconds spent sorting so far, leaving out pauses; 0 before the sort starts
      */
-    private void radixSort(Integer randomNums[], boolean step){
-        Integer numSet[] = randomNums.clone();
-        ArrayList<ArrayList<Integer>> buckets = new ArrayList<>(10);
-        Integer [] bucketCount = new Integer[10];
-
-        // Initialize buckets
-        for (int i = 0; i < 10; i ++)
-            bucketCount[i] = 0;
-
-        // Sort
-        boolean maxLen = false;
-        int digit = 1;
-        int radix = 10;
-
-        while (!maxLen) {
-            // Group by LSD
-            for (Integer x :
-                    numSet) {
-                int bucketNum = getRadixBucket(x, digit, radix);
-                bucketCount[bucketNum]++;
-            }
-
-
-            if (digit == 100) {
-                maxLen = true;
-            } else {
-                maxLen = false;
-            }
-
-            // Add numbers to array
-            numSet = radixSortJoin(numSet, bucketCount, digit, radix);
-
-            // Stepwise pause
-            if (step) {
-                suspendStep(numSet);
-            }
-
-            // Clear buckets
-            for (int i = 0; i < 10; i++) {
-                bucketCount[i] = 0;
-            }
-
-            digit *= radix;
-        }
-        addToQ(numSet);
+    public long getElapsedTime() {
+        if (finished)
+            return sortTime;
+        long start = startTime;
+        if (start == 0)
+            return 0;
+        long paused = pauseStart;
+        return (paused != 0 ? paused : System.nanoTime()) - start - pausedTime;
     }
 
-
-
-//
-//        for (int i = 0; i < 10; i++)
-//            buckets.add(new ArrayList<>());
-//
-//        // Sort
-//        boolean maxLen = false;
-//        int digit = 1;
-//        int radix = 10;
-//
-//        while (!maxLen) {
-//            // Group by LSD
-//            for (Integer x :
-//                    numSet) {
-//                int bucketNum = (x/digit) % radix;
-//
-//                buckets.get(bucketNum).add(x);
-//            }
-//            if (numSet.length == buckets.get(0).size()) {
-//                maxLen = true;
-//                continue;
-//            } else {
-//                maxLen = false;
-//            }
-//
-//            // Add buckets to array
-//            radixSortJoin(buckets, numSet);
-//
-//            // Stepwise pause
-//            if (step) {
-//                suspendStep(numSet);
-//            }
-//
-//            // Clear buckets
-//            for (int i = 0; i < 10; i++) {
-//                buckets.get(i).clear();
-//            }
-//
-//            digit *= radix;
-//        }
-
-//        addToQ(numSet);
-//    }
+    public boolean isFinished() {
+        return finished;
+    }
 
     /**
-     * Prints an arraylist of integers to console
-     * @param numSet the list of numbers to print
+     * @return what the algorithm threw, or null if it hasn't
      */
-    private void printNumList (Integer numSet[]) {
-        for (int number:
-                numSet) {
-            System.out.println(number);
-        }
+    public Throwable getFailure() {
+        return failure;
     }
 
     /**
-     * Calls the selected sort algorithm
+     * Lets a sort waiting in step mode carry on to its next step; called by the GUI thread
      */
-    private void sort(boolean step){
-        // Execute search based on selected algorithm
-        switch(this.sortAlg){
-            case ("Insertion Sort"):
-                insertionSort(randNumSet, step);
-                break;
-            case ("Heap Sort"):
-                heapSort(randNumSet, step);
-                break;
-            case ("Bubble Sort"):
-                bubbleSort(randNumSet, step);
-                break;
-            case ("Merge Sort"):
-                mergeSort(randNumSet, step);
-                break;
-            case ("Quick Sort"):
-                quickSort(randNumSet, step);
-                break;
-            case ("Radix Sort"):
-                radixSort(randNumSet, step);
-                break;
-        }
+    public void resume() {
+        permits.incrementAndGet();
+        Thread t = runner;
+        if (t != null)
+            LockSupport.unpark(t);
     }
 
-    private void addToQ(Integer[] numSet){
+    private void addToQ(DeltaChunk chunk){
         try {
-            q.put(numSet);
-        } catch (Exception e) {
-//            System.out.println("Sort Thread Interrupted");
+            q.put(chunk);
+        } catch (InterruptedException e) {
+            throw new CancellationException();
         }
     }
 
-    private void suspendStep(Integer [] numSet){
-        addToQ(numSet);
-        unLock();
-//        System.out.println("Suspend");
-        try {
-            Thread.sleep(10);
-        } catch (Exception e) {
-//            System.out.println("Sort Thread Interrupted");
+    /**
+     * Hands the step to the GUI, then waits for it to ask for the next one
+     */
+    private void suspendStep(int [] numSet){
+        long pause = System.nanoTime();
+        pauseStart = pause;
+        sendDeltas(numSet, touched, touchedCount, false);
+        touchedCount = 0;
+        comparedI = -1;
+        steps++;
+        while (true) {
+            int p = permits.get();
+            if (p > 0) {
+                if (permits.compareAndSet(p, p - 1)) {
+                    pausedTime += System.nanoTime() - pause;
+                    pauseStart = 0;
+                    return;
+                }
+            } else {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                    throw new CancellationException();
+            }
         }
-        getLock();
-//        System.out.println("Acquired SEM; WOKEUP");
-    }
-
-
-    private void getLock(){
-        this.lock.lock();
     }
 
-    private void unLock() {
+    @Override
+    public void run() {
+        runner = Thread.currentThread();
         try {
-            if (lock.isLocked())
-                this.lock.unlock();
-        } catch (Exception e) {
+            sort(this.step);
+        } catch (CancellationException e) {
 //            System.out.println("Sort Thread Interrupted");
+        } catch (RuntimeException | Error e) {
+            fail(e);
         }
     }
 
-    @Override
-    public void run() {
-        getLock();
-        sort(this.step);
-        unLock();
+    /**
+     * Stops the clock and ends the sort with a chunk carrying the failure, in place of the final result
+     * @param e what the algorithm threw
+     */
+    private void fail(Throwable e) {
+        sortTime = getElapsedTime();
+        failure = e;
+        finished = true;
+        DeltaChunk chunk = new DeltaChunk();
+        chunk.endOfStep = true;
+        chunk.endOfSort = true;
+        chunk.failure = e;
+        addToQ(chunk);
     }
 }
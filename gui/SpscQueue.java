@@ -0,0 +1,102 @@
+package gui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded queue for exactly one producer thread and one consumer thread, with no locks.
+ * The producer only moves the tail and the consumer only moves the head, so each index has a single
+ * writer. A full queue makes {@link #put(Object)} park the producer until the consumer takes something,
+ * which is the backpressure; an empty queue makes {@link #take()} park the consumer likewise.
+ * Each side publishes its index before checking whether the other side is parked, and each parked side
+ * re-checks the index after registering itself, so a wake up can't be lost in between.
+ * @param <E> element type
+ */
+final class SpscQueue<E> {
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile Thread parkedProducer;
+    private volatile Thread parkedConsumer;
+
+    /**
+     * @param capacity most elements held at once; rounded up to a power of two
+     */
+    SpscQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        buffer = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element unless the queue is full; producer only
+     * @return false if the queue was full
+     */
+    boolean offer(E e) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length)
+            return false;
+        buffer[(int) t & mask] = e;
+        tail.set(t + 1);
+        Thread consumer = parkedConsumer;
+        if (consumer != null)
+            LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element if there is one; consumer only
+     * @return the element, or null if the queue was empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long h = head.get();
+        if (h == tail.get())
+            return null;
+        int i = (int) h & mask;
+        E e = (E) buffer[i];
+        buffer[i] = null;
+        head.set(h + 1);
+        Thread producer = parkedProducer;
+        if (producer != null)
+            LockSupport.unpark(producer);
+        return e;
+    }
+
+    /**
+     * Adds an element, parking while the queue is full; producer only
+     * @throws InterruptedException if the producer is interrupted while waiting
+     */
+    void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            parkedProducer = Thread.currentThread();
+            if (tail.get() - head.get() == buffer.length)
+                LockSupport.park(this);
+            parkedProducer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Removes the oldest element, parking while the queue is empty; consumer only
+     * @throws InterruptedException if the consumer is interrupted while waiting
+     */
+    E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            parkedConsumer = Thread.currentThread();
+            if (head.get() == tail.get())
+                LockSupport.park(this);
+            parkedConsumer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        return e;
+    }
+}
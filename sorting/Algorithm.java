@@ -0,0 +1,418 @@
+package sorting;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Registry of the available sorting algorithms.
+ * This is the headless entry point; nothing in this package depends on JavaFX, so batch code can call
+ * {@code Algorithm.INTRO.sort(numbers)} directly on the calling thread.
+ * <p>
+ * Every algorithm sorts int arrays. The comparison sorts, INSERTION, HEAP, BUBBLE, MERGE, TIM, QUICK and INTRO,
+ * also sort object arrays and lists with a comparator, as does AUTO; all but HEAP, QUICK and INTRO keep equal
+ * elements in order. LOMUTO_QUICK, the textbook quick sort, is only there to be watched and sorts ints alone.
+ * RADIX, RADIX_MSD, COUNTING, BUCKET and the PARALLEL_ algorithms read the numbers' bits or values rather than
+ * comparing them, and only sort primitives. Algorithms which have no variant for an array type throw
+ * {@link UnsupportedOperationException}.
+ */
+public enum Algorithm {
+    INSERTION("Insertion Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            InsertionSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            InsertionSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            InsertionSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            InsertionSort.sort(a, from, to, c);
+        }
+
+        @Override
+        public int[] argsort(int[] a) {
+            return InsertionSort.argsort(a);
+        }
+
+        @Override
+        public int[] argsort(long[] a) {
+            return InsertionSort.argsort(a);
+        }
+
+        @Override
+        public int[] argsort(double[] a) {
+            return InsertionSort.argsort(a);
+        }
+    },
+    HEAP("Heap Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            HeapSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            HeapSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            HeapSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            HeapSort.sort(a, from, to, c);
+        }
+    },
+    BUBBLE("Bubble Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            BubbleSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            BubbleSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            BubbleSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            BubbleSort.sort(a, from, to, c);
+        }
+    },
+    MERGE("Merge Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            MergeSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            MergeSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            MergeSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            MergeSort.sort(a, from, to, c);
+        }
+
+        @Override
+        public int[] argsort(int[] a) {
+            return MergeSort.argsort(a);
+        }
+
+        @Override
+        public int[] argsort(long[] a) {
+            return MergeSort.argsort(a);
+        }
+
+        @Override
+        public int[] argsort(double[] a) {
+            return MergeSort.argsort(a);
+        }
+    },
+    TIM("Tim Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            TimSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            TimSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            TimSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            TimSort.sort(a, from, to, c);
+        }
+    },
+    // Intro sort under its familiar name, so callers asking for quick sort get the O(n log n) one
+    QUICK("Quick Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            IntroSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            IntroSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            IntroSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            IntroSort.sort(a, from, to, c);
+        }
+    },
+    // The textbook quick sort for the visualizer to step through; O(n^2) on sorted and repetitive input
+    LOMUTO_QUICK("Lomuto Quick Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            QuickSort.sort(a, from, to, observer);
+        }
+    },
+    INTRO("Intro Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            IntroSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            IntroSort.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            IntroSort.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            IntroSort.sort(a, from, to, c);
+        }
+    },
+    RADIX("Radix Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            RadixSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            RadixSort.sort(a, from, to);
+        }
+
+        @Override
+        public int[] argsort(int[] a) {
+            return RadixSort.argsort(a);
+        }
+
+        @Override
+        public int[] argsort(long[] a) {
+            return RadixSort.argsort(a);
+        }
+    },
+    RADIX_MSD("MSD Radix Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            RadixSort.sortMsd(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            RadixSort.sortMsd(a, from, to);
+        }
+    },
+    // Refuses key ranges whose counts would exceed CountingSort.DEFAULT_MEMORY_BUDGET
+    COUNTING("Counting Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            CountingSort.sort(a, from, to, observer);
+        }
+    },
+    BUCKET("Bucket Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            BucketSort.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            BucketSort.sort(a, from, to);
+        }
+    },
+    // The parallel sorts run on pool threads and never call the observer
+    PARALLEL_MERGE("Parallel Merge Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            ParallelMergeSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelMergeSort.DEFAULT_CUTOFF);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            ParallelMergeSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelMergeSort.DEFAULT_CUTOFF);
+        }
+    },
+    PARALLEL_QUICK("Parallel Quick Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            ParallelQuickSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelQuickSort.DEFAULT_CUTOFF);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            ParallelQuickSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelQuickSort.DEFAULT_CUTOFF);
+        }
+    },
+    PARALLEL_RADIX("Parallel Radix Sort") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            ParallelRadixSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelRadixSort.DEFAULT_CUTOFF);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            ParallelRadixSort.sort(a, from, to, ForkJoinPool.commonPool(), ParallelRadixSort.DEFAULT_CUTOFF);
+        }
+    },
+    // Profiles each input and hands it to one of the algorithms above; see AutoSort
+    AUTO("Auto") {
+        @Override
+        public void sort(int[] a, int from, int to, SortObserver observer) {
+            AutoSort.DEFAULT.sort(a, from, to, observer);
+        }
+
+        @Override
+        public void sort(long[] a, int from, int to) {
+            AutoSort.DEFAULT.sort(a, from, to);
+        }
+
+        @Override
+        public void sort(double[] a, int from, int to) {
+            AutoSort.DEFAULT.sort(a, from, to);
+        }
+
+        @Override
+        public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+            AutoSort.DEFAULT.sort(a, from, to, c);
+        }
+    };
+
+    private final String displayName;
+
+    Algorithm(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return the name shown to users, e.g. "Quick Sort"
+     */
+    public String displayName() {
+        return displayName;
+    }
+
+    /**
+     * Looks up an algorithm by its display name
+     * @param displayName name as returned by {@link #displayName()}
+     * @return the matching algorithm
+     * @throws IllegalArgumentException if no algorithm has that name
+     */
+    public static Algorithm forName(String displayName) {
+        for (Algorithm algorithm : values()) {
+            if (algorithm.displayName.equals(displayName))
+                return algorithm;
+        }
+        throw new IllegalArgumentException("Unknown sorting algorithm: " + displayName);
+    }
+
+    public void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sorts a list by copying it out to an array, sorting that and writing the elements back
+     * @param list elements to be sorted
+     * @param c ordering of the elements
+     * @throws UnsupportedOperationException if this algorithm only sorts primitives; see the class comment
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void sort(List<T> list, Comparator<? super T> c) {
+        Object[] a = list.toArray();
+        sort((T[]) a, 0, a.length, c);
+        setAll(list, a);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified as the sort makes progress; may be null
+     */
+    public abstract void sort(int[] a, int from, int to, SortObserver observer);
+
+    public void sort(long[] a, int from, int to) {
+        throw new UnsupportedOperationException(displayName + " has no long[] variant");
+    }
+
+    public void sort(double[] a, int from, int to) {
+        throw new UnsupportedOperationException(displayName + " has no double[] variant");
+    }
+
+    public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        throw new UnsupportedOperationException(displayName + " has no comparator variant");
+    }
+
+    /**
+     * Finds the order that would sort a without moving it; apply it with {@link Permutation#apply}
+     * @param a numbers to be ordered
+     * @return indices into a such that a[perm[0]] &lt;= a[perm[1]] &lt;= ...; equal numbers keep their order
+     */
+    public int[] argsort(int[] a) {
+        throw new UnsupportedOperationException(displayName + " has no argsort");
+    }
+
+    public int[] argsort(long[] a) {
+        throw new UnsupportedOperationException(displayName + " has no argsort");
+    }
+
+    public int[] argsort(double[] a) {
+        throw new UnsupportedOperationException(displayName + " has no argsort");
+    }
+
+    /**
+     * Overwrites every element of a list, in order, with the elements of an array of the same length
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void setAll(List<T> list, Object[] a) {
+        ListIterator<T> it = list.listIterator();
+        for (Object e : a) {
+            it.next();
+            it.set((T) e);
+        }
+    }
+}
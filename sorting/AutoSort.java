@@ -0,0 +1,283 @@
+package sorting;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Picks an algorithm for each input from a quick look at it, so callers don't have to choose one.
+ * <p>
+ * One pass over the numbers finds their range and counts the ascending and descending runs; a few hundred
+ * random pairs estimate the inversions and a sorted sample of a few hundred numbers estimates how many distinct
+ * values there are. The input then goes to the first engine that fits:
+ * <ol>
+ *     <li>insertion sort if it is tiny, or nearly sorted by the inversion estimate,</li>
+ *     <li>Tim sort if it is made of long runs, which it finds and merges in close to linear time,</li>
+ *     <li>counting sort if ints repeat heavily over a narrow range no wider than the input is long,</li>
+ *     <li>radix sort if the keys span a narrow range, so only a couple of digit passes are needed,</li>
+ *     <li>intro sort otherwise, whose three-way partition also handles heavy duplication.</li>
+ * </ol>
+ * Every decision is logged at {@link Level#FINE} to the {@code sorting.AutoSort} logger with the profile behind
+ * it. The thresholds are constructor arguments; {@link #DEFAULT} reads them from {@code -Dsorting.auto.*}
+ * system properties so they can be tuned from AutoSortBenchmark runs without rebuilding.
+ */
+public final class AutoSort {
+    private static final Logger LOG = Logger.getLogger(AutoSort.class.getName());
+
+    /** Thresholds from the sorting.auto.* system properties, or the defaults where unset */
+    public static final AutoSort DEFAULT = new AutoSort(
+            Integer.getInteger("sorting.auto.insertionSize", 32),
+            Integer.getInteger("sorting.auto.nearlySortedInversions", 4),
+            Integer.getInteger("sorting.auto.runLength", 64),
+            Integer.getInteger("sorting.auto.radixRangeBits", 16),
+            Integer.getInteger("sorting.auto.radixSize", 512),
+            Integer.getInteger("sorting.auto.sampleSize", 256),
+            Integer.getInteger("sorting.auto.fewDistinctPercent", 25));
+
+    private final int insertionSize, nearlySortedInversions, runLength, radixRangeBits, radixSize, sampleSize,
+            fewDistinctPercent;
+
+    /**
+     * @param insertionSize inputs of at most this many numbers go to insertion sort
+     * @param nearlySortedInversions inputs with at most this many estimated inversions per number go to insertion sort
+     * @param runLength inputs whose runs average at least this many numbers go to Tim sort
+     * @param radixRangeBits inputs whose max - min fits in this many bits go to radix sort
+     * @param radixSize radix sort is only chosen for at least this many numbers
+     * @param sampleSize numbers and pairs sampled for the inversion and duplicate estimates
+     * @param fewDistinctPercent inputs whose sample is at most this percent distinct values count as heavily
+     * duplicated, and go to counting sort if their range is narrow enough
+     */
+    public AutoSort(int insertionSize, int nearlySortedInversions, int runLength, int radixRangeBits,
+                    int radixSize, int sampleSize, int fewDistinctPercent) {
+        if (insertionSize < 0 || nearlySortedInversions < 0 || runLength < 2 || radixRangeBits < 0
+                || radixRangeBits > 32 || radixSize < 0 || sampleSize < 1 || fewDistinctPercent < 0
+                || fewDistinctPercent > 100)
+            throw new IllegalArgumentException("Threshold out of range");
+        this.insertionSize = insertionSize;
+        this.nearlySortedInversions = nearlySortedInversions;
+        this.runLength = runLength;
+        this.radixRangeBits = radixRangeBits;
+        this.radixSize = radixSize;
+        this.sampleSize = sampleSize;
+        this.fewDistinctPercent = fewDistinctPercent;
+    }
+
+    public void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    /**
+     * Profiles a[from, to) and sorts it with the algorithm that profile calls for
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer passed on to the chosen algorithm; may be null
+     */
+    public void sort(int[] a, int from, int to, SortObserver observer) {
+        choose(a, from, to).sort(a, from, to, observer);
+    }
+
+    public void sort(long[] a, int from, int to) {
+        choose(a, from, to).sort(a, from, to);
+    }
+
+    public void sort(double[] a, int from, int to) {
+        choose(a, from, to).sort(a, from, to);
+    }
+
+    /**
+     * Sorts objects with insertion sort if there are few of them and Tim sort otherwise. Nothing else is profiled:
+     * only comparison sorts take a comparator, and Tim sort already finds whatever runs the input has.
+     * @param a elements to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param c ordering of the elements
+     */
+    public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        int n = to - from;
+        Algorithm chosen = n <= insertionSize ? log(Algorithm.INSERTION, "tiny", n, 0, 0, 0, 0)
+                : log(Algorithm.TIM, "objects", n, 0, 0, Integer.MAX_VALUE, 0);
+        chosen.sort(a, from, to, c);
+    }
+
+    /**
+     * Profiles a[from, to) without changing it and logs which algorithm it calls for
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return the algorithm to sort them with
+     */
+    public Algorithm choose(int[] a, int from, int to) {
+        int n = to - from;
+        if (n <= insertionSize)
+            return log(Algorithm.INSERTION, "tiny", n, 0, 0, 0, 0);
+
+        int min = a[from], max = a[from], runs = 1, direction = 0;
+        for (int i = from + 1; i < to; i++) {
+            int v = a[i];
+            if (v < min)
+                min = v;
+            else if (v > max)
+                max = v;
+            int c = Integer.compare(v, a[i - 1]);
+            if (c != 0) {
+                if (direction == 0) {
+                    direction = c;
+                } else if (c != direction) {
+                    runs++;
+                    direction = 0;
+                }
+            }
+        }
+        int rangeBits = 64 - Long.numberOfLeadingZeros((long) max - min);
+
+        Random random = new Random(n);
+        int inversions = 0;
+        for (int s = 0; s < sampleSize; s++) {
+            int i = from + random.nextInt(n), j = from + random.nextInt(n);
+            if (i < j ? a[i] > a[j] : a[j] > a[i])
+                inversions++;
+        }
+        int[] sample = new int[Math.min(sampleSize, n)];
+        for (int s = 0; s < sample.length; s++)
+            sample[s] = a[from + random.nextInt(n)];
+        InsertionSort.sort(sample, 0, sample.length);
+        int distinct = 1;
+        for (int s = 1; s < sample.length; s++) {
+            if (sample[s] != sample[s - 1])
+                distinct++;
+        }
+
+        return route(n, runs, inversions, rangeBits, distinct, sample.length, true);
+    }
+
+    public Algorithm choose(long[] a, int from, int to) {
+        int n = to - from;
+        if (n <= insertionSize)
+            return log(Algorithm.INSERTION, "tiny", n, 0, 0, 0, 0);
+
+        long min = a[from], max = a[from];
+        int runs = 1, direction = 0;
+        for (int i = from + 1; i < to; i++) {
+            long v = a[i];
+            if (v < min)
+                min = v;
+            else if (v > max)
+                max = v;
+            int c = Long.compare(v, a[i - 1]);
+            if (c != 0) {
+                if (direction == 0) {
+                    direction = c;
+                } else if (c != direction) {
+                    runs++;
+                    direction = 0;
+                }
+            }
+        }
+        // max - min wraps around when the range needs all 64 bits
+        long range = max - min;
+        int rangeBits = range < 0 ? 64 : 64 - Long.numberOfLeadingZeros(range);
+
+        Random random = new Random(n);
+        int inversions = 0;
+        for (int s = 0; s < sampleSize; s++) {
+            int i = from + random.nextInt(n), j = from + random.nextInt(n);
+            if (i < j ? a[i] > a[j] : a[j] > a[i])
+                inversions++;
+        }
+        long[] sample = new long[Math.min(sampleSize, n)];
+        for (int s = 0; s < sample.length; s++)
+            sample[s] = a[from + random.nextInt(n)];
+        InsertionSort.sort(sample, 0, sample.length);
+        int distinct = 1;
+        for (int s = 1; s < sample.length; s++) {
+            if (sample[s] != sample[s - 1])
+                distinct++;
+        }
+
+        return route(n, runs, inversions, rangeBits, distinct, sample.length, false);
+    }
+
+    // Radix and counting sort have no double variant, so doubles are never routed there
+    public Algorithm choose(double[] a, int from, int to) {
+        int n = to - from;
+        if (n <= insertionSize)
+            return log(Algorithm.INSERTION, "tiny", n, 0, 0, 0, 0);
+
+        int runs = 1, direction = 0;
+        for (int i = from + 1; i < to; i++) {
+            int c = Double.compare(a[i], a[i - 1]);
+            if (c != 0) {
+                if (direction == 0) {
+                    direction = c;
+                } else if (c != direction) {
+                    runs++;
+                    direction = 0;
+                }
+            }
+        }
+
+        Random random = new Random(n);
+        int inversions = 0;
+        for (int s = 0; s < sampleSize; s++) {
+            int i = from + random.nextInt(n), j = from + random.nextInt(n);
+            if (i < j ? a[i] > a[j] : a[j] > a[i])
+                inversions++;
+        }
+        double[] sample = new double[Math.min(sampleSize, n)];
+        for (int s = 0; s < sample.length; s++)
+            sample[s] = a[from + random.nextInt(n)];
+        InsertionSort.sort(sample, 0, sample.length);
+        int distinct = 1;
+        for (int s = 1; s < sample.length; s++) {
+            if (sample[s] != sample[s - 1])
+                distinct++;
+        }
+
+        return route(n, runs, inversions, Integer.MAX_VALUE, distinct, sample.length, false);
+    }
+
+    /**
+     * Applies the thresholds to a profile
+     * @param n number of numbers
+     * @param runs ascending and descending runs counted over the whole input
+     * @param inversions sampled pairs found out of order
+     * @param rangeBits bits needed for max - min, or Integer.MAX_VALUE if radix sort can't take the type
+     * @param distinct distinct values in the sorted sample
+     * @param sampled size of that sample
+     * @param countable true if counting sort can take the type, which only ints can
+     */
+    private Algorithm route(int n, int runs, int inversions, int rangeBits, int distinct, int sampled,
+                            boolean countable) {
+        // A random pair is out of order with probability inversions / (n (n - 1) / 2). One inversion is added to
+        // the sample so finding none can't claim a large input is sorted; it caps insertion sort at about
+        // 2 nearlySortedInversions sampleSize numbers, and longer sorted inputs go to Tim sort as one run instead.
+        double estimatedInversions = (inversions + 1.0) / sampleSize * n * (n - 1) / 2;
+        if (estimatedInversions <= (double) nearlySortedInversions * n)
+            return log(Algorithm.INSERTION, "nearly sorted", n, runs, estimatedInversions, rangeBits, distinct);
+        if (n / runs >= runLength)
+            return log(Algorithm.TIM, "long runs", n, runs, estimatedInversions, rangeBits, distinct);
+        // Counting is O(n + range), so it only pays when the range is no longer than the input, and it refuses
+        // ranges whose counts would pass its memory budget
+        boolean fewDistinct = distinct * 100L <= (long) fewDistinctPercent * sampled;
+        boolean narrow = n >= radixSize && rangeBits <= radixRangeBits;
+        if (fewDistinct && narrow && countable && 1L << rangeBits <= n
+                && (long) Integer.BYTES << rangeBits <= CountingSort.DEFAULT_MEMORY_BUDGET)
+            return log(Algorithm.COUNTING, "few distinct keys, narrow range", n, runs, estimatedInversions,
+                    rangeBits, distinct);
+        if (narrow)
+            return log(Algorithm.RADIX, "narrow key range", n, runs, estimatedInversions, rangeBits, distinct);
+        String reason = fewDistinct ? "few distinct keys" : "no structure found";
+        return log(Algorithm.INTRO, reason, n, runs, estimatedInversions, rangeBits, distinct);
+    }
+
+    private static Algorithm log(Algorithm chosen, String reason, int n, int runs, double inversions,
+                                 int rangeBits, int distinct) {
+        if (LOG.isLoggable(Level.FINE))
+            LOG.fine(String.format("%s (%s): n=%d runs=%d inversions~%.0f rangeBits=%s distinctInSample=%d",
+                    chosen.displayName(), reason, n, runs, inversions,
+                    rangeBits == Integer.MAX_VALUE ? "-" : String.valueOf(rangeBits), distinct));
+        return chosen;
+    }
+}
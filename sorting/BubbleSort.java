@@ -0,0 +1,124 @@
+package sorting;
+
+import java.util.Comparator;
+
+/**
+ * Bubble sort over primitive arrays, and object arrays with a comparator.
+ * Goes through the array letting the largest number "float" to the last slot, then repeats with size - 1.
+ * The double variants order by {@code <} and do not support NaN.
+ */
+public final class BubbleSort {
+
+    private BubbleSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every pass; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        boolean swapped = true;
+        int end = to;
+
+        while (swapped) {
+            swapped = false;
+
+            // Don't need to check past end, everything there is already in place
+            for (int i = from + 1; i < end; i++) {
+                if (a[i] < a[i - 1]) {
+                    int temp = a[i];
+                    a[i] = a[i - 1];
+                    a[i - 1] = temp;
+                    swapped = true;
+                    SortStats.swap();
+                }
+            }
+            if (SortStats.ENABLED && end - from > 1) {
+                SortStats.compare(end - from - 1);
+                SortStats.read(2L * (end - from - 1));
+            }
+
+            if (observer != null) {
+                observer.write(from, end);
+                if (end - from > 1)
+                    observer.compare(end - 2, end - 1);
+                observer.step();
+            }
+            end--;
+        }
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        boolean swapped = true;
+        int end = to;
+        while (swapped) {
+            swapped = false;
+            for (int i = from + 1; i < end; i++) {
+                if (a[i] < a[i - 1]) {
+                    long temp = a[i];
+                    a[i] = a[i - 1];
+                    a[i - 1] = temp;
+                    swapped = true;
+                }
+            }
+            end--;
+        }
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        boolean swapped = true;
+        int end = to;
+        while (swapped) {
+            swapped = false;
+            for (int i = from + 1; i < end; i++) {
+                if (a[i] < a[i - 1]) {
+                    double temp = a[i];
+                    a[i] = a[i - 1];
+                    a[i - 1] = temp;
+                    swapped = true;
+                }
+            }
+            end--;
+        }
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        boolean swapped = true;
+        int end = to;
+        while (swapped) {
+            swapped = false;
+            for (int i = from + 1; i < end; i++) {
+                if (c.compare(a[i], a[i - 1]) < 0) {
+                    T temp = a[i];
+                    a[i] = a[i - 1];
+                    a[i - 1] = temp;
+                    swapped = true;
+                }
+            }
+            end--;
+        }
+    }
+}
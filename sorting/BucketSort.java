@@ -0,0 +1,150 @@
+package sorting;
+
+/**
+ * Bucket sort for numbers spread evenly over their range, chiefly doubles.
+ * One pass finds the smallest and largest number, and the range between them is cut into one bucket per
+ * number. The numbers are counted into their buckets and scattered into a scratch array in bucket order, then
+ * copied back with each bucket sorted on its own. Evenly spread input puts about one number in each bucket,
+ * which makes the whole sort O(n); buckets that fill up anyway are sorted with {@link IntroSort} rather than
+ * insertion sort, so clustered input costs O(n log n) rather than O(n^2).
+ * <p>
+ * The counts and scratch array take 12 bytes per double (8 per int), so input too large for the memory budget
+ * is refused rather than allocated. The double variants order by {@code <} and do not support NaN, and a
+ * range too wide to subtract without overflowing to infinity falls back to one bucket.
+ */
+public final class BucketSort {
+    /** Most bytes of counts and scratch allocated when no budget is given */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+    /** Buckets at or below this many numbers are sorted with insertion sort */
+    private static final int INSERTION_CUTOFF = 32;
+
+    private BucketSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length, DEFAULT_MEMORY_BUDGET);
+    }
+
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        sort(a, from, to, DEFAULT_MEMORY_BUDGET, observer);
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        sort(a, from, to, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param memoryBudget most bytes the bucket counts and scratch array may take
+     * @param observer notified after every bucket is sorted; may be null
+     * @throws IllegalArgumentException if the counts and scratch would take more than memoryBudget bytes;
+     * a is left unchanged
+     */
+    public static void sort(int[] a, int from, int to, long memoryBudget, SortObserver observer) {
+        int n = to - from;
+        if (n < 2)
+            return;
+        checkBudget(n, Integer.BYTES, memoryBudget);
+
+        int min = a[from], max = a[from];
+        for (int i = from + 1; i < to; i++) {
+            int v = a[i];
+            if (v < min)
+                min = v;
+            else if (v > max)
+                max = v;
+        }
+        SortStats.read(n);
+        if (min == max)
+            return;
+
+        // (v - min) * n stays below 2^63 for any int range and array length
+        long range = (long) max - min + 1;
+        int[] start = new int[n + 1];
+        for (int i = from; i < to; i++)
+            start[(int) (((long) a[i] - min) * n / range) + 1]++;
+        for (int b = 1; b <= n; b++)
+            start[b] += start[b - 1];
+
+        // Scattering moves each start up to the next bucket's, so bucket b ends at start[b] afterwards
+        int[] scratch = new int[n];
+        SortStats.allocate((long) Integer.BYTES * (2 * n + 1));
+        for (int i = from; i < to; i++) {
+            int v = a[i];
+            scratch[start[(int) (((long) v - min) * n / range)]++] = v;
+        }
+        System.arraycopy(scratch, 0, a, from, n);
+        SortStats.move(2L * n);
+        if (observer != null)
+            observer.write(from, to);
+
+        for (int b = 0, lo = from; b < n; b++) {
+            int hi = from + start[b];
+            if (hi - lo > INSERTION_CUTOFF)
+                IntroSort.sort(a, lo, hi);
+            else if (hi - lo > 1)
+                InsertionSort.sort(a, lo, hi);
+            if (observer != null) {
+                observer.write(lo, hi);
+                observer.step();
+            }
+            lo = hi;
+        }
+    }
+
+    public static void sort(double[] a, int from, int to, long memoryBudget) {
+        int n = to - from;
+        if (n < 2)
+            return;
+        checkBudget(n, Double.BYTES, memoryBudget);
+
+        double min = a[from], max = a[from];
+        for (int i = from + 1; i < to; i++) {
+            double v = a[i];
+            if (v < min)
+                min = v;
+            else if (v > max)
+                max = v;
+        }
+        if (min == max)
+            return;
+
+        // An infinite range gives a scale of 0, and a NaN index casts to 0, so everything lands in bucket 0
+        double scale = n / (max - min);
+        int[] start = new int[n + 1];
+        for (int i = from; i < to; i++)
+            start[Math.min((int) ((a[i] - min) * scale), n - 1) + 1]++;
+        for (int b = 1; b <= n; b++)
+            start[b] += start[b - 1];
+
+        double[] scratch = new double[n];
+        for (int i = from; i < to; i++) {
+            double v = a[i];
+            scratch[start[Math.min((int) ((v - min) * scale), n - 1)]++] = v;
+        }
+        System.arraycopy(scratch, 0, a, from, n);
+
+        for (int b = 0, lo = from; b < n; b++) {
+            int hi = from + start[b];
+            if (hi - lo > INSERTION_CUTOFF)
+                IntroSort.sort(a, lo, hi);
+            else if (hi - lo > 1)
+                InsertionSort.sort(a, lo, hi);
+            lo = hi;
+        }
+    }
+
+    private static void checkBudget(int n, int width, long memoryBudget) {
+        long bytes = (long) Integer.BYTES * (n + 1) + (long) width * n;
+        if (bytes > memoryBudget)
+            throw new IllegalArgumentException("Bucket sorting " + n + " numbers needs " + bytes
+                    + " bytes, over the budget of " + memoryBudget);
+    }
+}
@@ -0,0 +1,74 @@
+package sorting;
+
+/**
+ * Counting sort for ints whose values span a narrow range, such as [0, 1000].
+ * One pass finds the smallest and largest number, a second counts how often each value in between occurs,
+ * and a third writes each value out as many times as it was counted. No number is compared with another and
+ * nothing but the counts is allocated, so it is O(n + range) with a small constant.
+ * <p>
+ * The counts take 4 bytes per value in the range, whether it occurs or not, so a range too wide for the memory
+ * budget is refused rather than allocated; sparse or wide keys belong in {@link RadixSort}.
+ */
+public final class CountingSort {
+    /** Most bytes of counts allocated when no budget is given */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    private CountingSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        sort(a, from, to, DEFAULT_MEMORY_BUDGET, observer);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param memoryBudget most bytes the counts may take
+     * @param observer notified after every number written; may be null
+     * @throws IllegalArgumentException if counting the range between the smallest and largest number would take
+     * more than memoryBudget bytes; a is left unchanged
+     */
+    public static void sort(int[] a, int from, int to, long memoryBudget, SortObserver observer) {
+        if (to - from < 2)
+            return;
+
+        int min = a[from], max = a[from];
+        for (int i = from + 1; i < to; i++) {
+            int v = a[i];
+            if (v < min)
+                min = v;
+            else if (v > max)
+                max = v;
+        }
+        SortStats.read(to - from);
+
+        long range = (long) max - min + 1;
+        if (Integer.BYTES * range > memoryBudget)
+            throw new IllegalArgumentException("Counting " + range + " values from " + min + " to " + max
+                    + " needs " + Integer.BYTES * range + " bytes, over the budget of " + memoryBudget);
+
+        int[] count = new int[(int) range];
+        SortStats.allocate(Integer.BYTES * range);
+        for (int i = from; i < to; i++)
+            count[a[i] - min]++;
+        SortStats.read(to - from);
+
+        int k = from;
+        for (int v = 0; v < count.length; v++) {
+            for (int c = count[v]; c > 0; c--) {
+                a[k++] = v + min;
+                if (observer != null) {
+                    observer.write(k - 1);
+                    observer.step();
+                }
+            }
+        }
+        SortStats.write(to - from);
+    }
+}
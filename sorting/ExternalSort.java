@@ -0,0 +1,436 @@
+package sorting;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sorts binary files of ints or longs which are too large to hold in memory.
+ * <p>
+ * The run phase reads the input a memory budget's worth at a time, sorts each chunk with one of the in-memory
+ * algorithms and spills it to a temp file. The merge phase then streams the runs back through a min-heap of run
+ * heads, k at a time, until one sorted output remains. If there are more runs than the budget can give read
+ * buffers to, intermediate merge passes combine them first. Everything goes through {@link FileChannel}s and
+ * direct buffers, and a {@link Report} of the bytes read and written by each phase is returned.
+ * <p>
+ * Each phase allocates one direct slab and slices it into the buffers it needs, so a large budget means a few
+ * large allocations rather than one per run file, and direct memory use stays within the budget.
+ */
+public final class ExternalSort {
+    /** Memory budget used when none is given, in bytes */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    /** Buffer size for reading the input and writing runs */
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    /** Smallest read buffer each run gets during a merge; bounds the merge fan-in */
+    private static final int MIN_MERGE_BUFFER_BYTES = 64 << 10;
+    /** Most runs merged at once, so every merge buffer fits in one slab of at most 2 GiB */
+    private static final int MAX_FAN_IN = Integer.MAX_VALUE / MIN_MERGE_BUFFER_BYTES - 1;
+    /** Largest read buffer each run gets during a merge */
+    private static final int MAX_MERGE_BUFFER_BYTES = 8 << 20;
+
+    private final Path tempDir;
+    private final long memoryBudget;
+    private final int runSize;
+    private final Algorithm algorithm;
+    private final ByteOrder order;
+
+    /**
+     * Uses the default memory budget, radix sort for runs and big-endian numbers
+     * @param tempDir directory for the run files
+     */
+    public ExternalSort(Path tempDir) {
+        this(tempDir, DEFAULT_MEMORY_BUDGET, 0, Algorithm.RADIX, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param tempDir directory for the run files
+     * @param memoryBudget bytes the sort may use for arrays and buffers
+     * @param runSize numbers per run, or 0 to fit as many as the memory budget allows
+     * @param algorithm in-memory algorithm for sorting each run
+     * @param order byte order of the numbers in the files
+     */
+    public ExternalSort(Path tempDir, long memoryBudget, int runSize, Algorithm algorithm, ByteOrder order) {
+        if (memoryBudget < 4L * IO_BUFFER_BYTES)
+            throw new IllegalArgumentException("Memory budget must be at least " + 4 * IO_BUFFER_BYTES + " bytes: " + memoryBudget);
+        if (runSize < 0)
+            throw new IllegalArgumentException("Run size must not be negative: " + runSize);
+        this.tempDir = tempDir;
+        this.memoryBudget = memoryBudget;
+        this.runSize = runSize;
+        this.algorithm = algorithm;
+        this.order = order;
+    }
+
+    /**
+     * Sorts a file of 4 byte ints
+     * @param input file to sort
+     * @param output file to write the sorted numbers to; replaced if it exists
+     * @return bytes moved by each phase
+     * @throws IOException if reading or writing fails
+     */
+    public Report sortInts(Path input, Path output) throws IOException {
+        return sort(input, output, Integer.BYTES);
+    }
+
+    /**
+     * Sorts a file of 8 byte longs
+     * @param input file to sort
+     * @param output file to write the sorted numbers to; replaced if it exists
+     * @return bytes moved by each phase
+     * @throws IOException if reading or writing fails
+     */
+    public Report sortLongs(Path input, Path output) throws IOException {
+        return sort(input, output, Long.BYTES);
+    }
+
+    private Report sort(Path input, Path output, int width) throws IOException {
+        Report report = new Report();
+        List<Path> runs = new ArrayList<>();
+        List<Path> temps = new ArrayList<>();
+        try {
+            try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+                long size = in.size();
+                if (size % width != 0)
+                    throw new IllegalArgumentException(input + " is not a whole number of " + width + " byte numbers");
+                createRuns(in, size / width, width, output, runs, temps, report);
+            }
+            if (!runs.isEmpty())
+                mergeAll(runs, output, width, temps, report);
+        } finally {
+            for (Path temp : temps)
+                Files.deleteIfExists(temp);
+        }
+        return report;
+    }
+
+    /**
+     * @return numbers per run; the run array and the algorithm's scratch space share what the I/O buffer leaves
+     */
+    private int runLength(int width) {
+        if (runSize > 0)
+            return runSize;
+        long fit = (memoryBudget - 2L * IO_BUFFER_BYTES) / (2L * width);
+        return (int) Math.min(fit, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Run phase; sorts the input a chunk at a time into temp files.
+     * If everything fits in one run it is written straight to the output and no runs are returned.
+     */
+    private void createRuns(FileChannel in, long count, int width, Path output, List<Path> runs, List<Path> temps,
+                            Report report) throws IOException {
+        int runLength = (int) Math.min(runLength(width), Math.max(count, 1));
+        ByteBuffer slab = ByteBuffer.allocateDirect(2 * IO_BUFFER_BYTES);
+        ByteBuffer buf = slice(slab, 0, IO_BUFFER_BYTES);
+        ByteBuffer writeBuf = slice(slab, IO_BUFFER_BYTES, IO_BUFFER_BYTES);
+        int[] ints = width == Integer.BYTES ? new int[runLength] : null;
+        long[] longs = width == Long.BYTES ? new long[runLength] : null;
+
+        long remaining = count;
+        do {
+            int n = (int) Math.min(runLength, remaining);
+
+            // Fill the run array a buffer at a time
+            for (int filled = 0; filled < n; ) {
+                buf.clear();
+                buf.limit(Math.min(buf.capacity() / width, n - filled) * width);
+                readFully(in, buf);
+                buf.flip();
+                int got = buf.remaining() / width;
+                if (ints != null)
+                    buf.asIntBuffer().get(ints, filled, got);
+                else
+                    buf.asLongBuffer().get(longs, filled, got);
+                filled += got;
+            }
+            report.runBytesRead += (long) n * width;
+
+            if (ints != null)
+                algorithm.sort(ints, 0, n, null);
+            else
+                algorithm.sort(longs, 0, n);
+
+            Path run;
+            if (count <= runLength) {
+                run = output;
+            } else {
+                run = createTemp("run", temps);
+                runs.add(run);
+            }
+            RunWriter out = new RunWriter(run, width, writeBuf);
+            try {
+                for (int i = 0; i < n; i++)
+                    out.put(ints != null ? ints[i] : longs[i]);
+            } finally {
+                out.close();
+            }
+            report.runBytesWritten += out.bytesWritten;
+            report.runs++;
+            remaining -= n;
+        } while (remaining > 0);
+    }
+
+    /**
+     * Merge phase; merges runs fanIn at a time until they fit in one final merge into the output.
+     * The slab holds a buffer for each run of the widest merge and one for its output; no buffer grows past
+     * MAX_MERGE_BUFFER_BYTES, so a budget far beyond what the merges can use is not allocated.
+     */
+    private void mergeAll(List<Path> runs, Path output, int width, List<Path> temps, Report report) throws IOException {
+        int fanIn = (int) Math.max(2, Math.min(memoryBudget / MIN_MERGE_BUFFER_BYTES - 1, MAX_FAN_IN));
+        int widest = Math.min(fanIn, runs.size());
+        long slabBytes = Math.min(Math.min(memoryBudget, Integer.MAX_VALUE),
+                (long) (widest + 1) * MAX_MERGE_BUFFER_BYTES);
+        ByteBuffer slab = ByteBuffer.allocateDirect((int) slabBytes);
+
+        while (runs.size() > fanIn) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += fanIn) {
+                List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path run = createTemp("merge", temps);
+                merged.add(run);
+                mergeRuns(group, run, width, slab, report);
+                for (Path done : group)
+                    Files.delete(done);
+            }
+            runs.clear();
+            runs.addAll(merged);
+            report.mergePasses++;
+        }
+        mergeRuns(runs, output, width, slab, report);
+        report.mergePasses++;
+    }
+
+    /**
+     * K-way merges sorted run files into one through a min-heap of the runs' current numbers
+     * @param slab split evenly between a read buffer per run and the output's write buffer
+     */
+    private void mergeRuns(List<Path> runs, Path output, int width, ByteBuffer slab, Report report)
+            throws IOException {
+        int k = runs.size();
+        int bufferBytes = Math.min(slab.capacity() / (k + 1), MAX_MERGE_BUFFER_BYTES);
+        bufferBytes -= bufferBytes % Long.BYTES;
+
+        RunReader[] readers = new RunReader[k];
+        RunWriter out = new RunWriter(output, width, slice(slab, k * bufferBytes, bufferBytes));
+        try {
+            long[] heads = new long[k];
+            int[] heap = new int[k];
+            int size = 0;
+            for (int r = 0; r < k; r++) {
+                readers[r] = new RunReader(runs.get(r), width, slice(slab, r * bufferBytes, bufferBytes));
+                if (readers[r].hasNext()) {
+                    heads[r] = readers[r].next();
+                    heap[size++] = r;
+                }
+            }
+            for (int start = size / 2 - 1; start >= 0; start--)
+                siftDown(heap, heads, start, size);
+
+            // Emit the smallest head and refill from its run until every run is drained
+            while (size > 0) {
+                int r = heap[0];
+                out.put(heads[r]);
+                if (readers[r].hasNext())
+                    heads[r] = readers[r].next();
+                else
+                    heap[0] = heap[--size];
+                siftDown(heap, heads, 0, size);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    report.mergeBytesRead += reader.bytesRead;
+                    reader.close();
+                }
+            }
+            out.close();
+        }
+        report.mergeBytesWritten += out.bytesWritten;
+    }
+
+    /**
+     * Repairs the min-heap of run indices, ordered by each run's current number; the same hole-shifting
+     * walk as {@link HeapSort#siftDown(long[], int, int, int)} with the comparisons flipped
+     * @param heap run indices
+     * @param heads current number of each run
+     * @param root position to sift down from
+     * @param size number of runs in the heap
+     */
+    private static void siftDown(int[] heap, long[] heads, int root, int size) {
+        int run = heap[root];
+        long value = heads[run];
+        int half = size >>> 1;
+        while (root < half) {
+            int child = 2 * root + 1;
+            if (child + 1 < size && heads[heap[child + 1]] < heads[heap[child]])
+                child++;
+            if (value <= heads[heap[child]])
+                break;
+            heap[root] = heap[child];
+            root = child;
+        }
+        heap[root] = run;
+    }
+
+    /**
+     * Creates a temp file, remembering it so it is deleted however the sort ends
+     */
+    private Path createTemp(String prefix, List<Path> temps) throws IOException {
+        Path temp = Files.createTempFile(tempDir, prefix, ".bin");
+        temps.add(temp);
+        return temp;
+    }
+
+    /**
+     * @return bytes bytes of slab from offset on, as a buffer of their own in the files' byte order
+     */
+    private ByteBuffer slice(ByteBuffer slab, int offset, int bytes) {
+        ByteBuffer view = slab.duplicate();
+        view.position(offset).limit(offset + bytes);
+        return view.slice().order(order);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (in.read(buf) < 0)
+                throw new EOFException("Input ended early");
+        }
+    }
+
+    /**
+     * Buffered sequential reader of one run file
+     */
+    private final class RunReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+        private final int width;
+        private long bytesRead;
+
+        RunReader(Path path, int width, ByteBuffer buf) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buf = buf;
+            this.width = width;
+            buf.clear().flip();
+        }
+
+        boolean hasNext() throws IOException {
+            if (buf.hasRemaining())
+                return true;
+            // Fill the whole buffer so a number is never split across two reads
+            buf.clear();
+            int read;
+            while (buf.hasRemaining() && (read = channel.read(buf)) >= 0)
+                bytesRead += read;
+            buf.flip();
+            return buf.hasRemaining();
+        }
+
+        long next() {
+            return width == Integer.BYTES ? buf.getInt() : buf.getLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Buffered sequential writer of a run or output file
+     */
+    private final class RunWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+        private final int width;
+        private long bytesWritten;
+
+        RunWriter(Path path, int width, ByteBuffer buf) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.buf = buf;
+            this.width = width;
+            buf.clear();
+        }
+
+        void put(long value) throws IOException {
+            if (buf.remaining() < width)
+                flush();
+            if (width == Integer.BYTES)
+                buf.putInt((int) value);
+            else
+                buf.putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            bytesWritten += buf.remaining();
+            while (buf.hasRemaining())
+                channel.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Bytes read and written by each phase of one sort
+     */
+    public static final class Report {
+        private long runBytesRead, runBytesWritten, mergeBytesRead, mergeBytesWritten;
+        private int runs, mergePasses;
+
+        public long getRunBytesRead() {
+            return runBytesRead;
+        }
+
+        public long getRunBytesWritten() {
+            return runBytesWritten;
+        }
+
+        public long getMergeBytesRead() {
+            return mergeBytesRead;
+        }
+
+        public long getMergeBytesWritten() {
+            return mergeBytesWritten;
+        }
+
+        /**
+         * @return number of sorted runs the input was split into
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * @return number of times the data went through a merge; 0 if the input fit in one run
+         */
+        public int getMergePasses() {
+            return mergePasses;
+        }
+
+        @Override
+        public String toString() {
+            return "runs: " + runs + " (read " + runBytesRead + " B, wrote " + runBytesWritten + " B), "
+                    + "merge passes: " + mergePasses + " (read " + mergeBytesRead + " B, wrote " + mergeBytesWritten + " B)";
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package sorting;
+
+import java.util.Comparator;
+
+/**
+ * Heap sort over primitive arrays, and object arrays with a comparator.
+ * Builds a max-heap in place, then moves the root of the heap to the end until all items have been processed.
+ * The double variants order by {@code <} and do not support NaN.
+ */
+public final class HeapSort {
+
+    private HeapSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every root extraction; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        heapify(a, from, to);
+        if (observer != null)
+            observer.write(from, to);
+        for (int end = to - 1; end > from; end--) {
+            int temp = a[end];
+            a[end] = a[from];
+            a[from] = temp;
+            SortStats.swap();
+            int last = siftDown(a, from, from, end);
+
+            if (observer != null) {
+                // The sift shifted each node on the path from the root down to where the old last number settled
+                observer.write(end);
+                for (int i = last; i > from; i = from + (i - from - 1) / 2)
+                    observer.write(i);
+                observer.write(from);
+                if (last > from)
+                    observer.compare(from + (last - from - 1) / 2, last);
+                observer.step();
+            }
+        }
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        heapify(a, from, to);
+        for (int end = to - 1; end > from; end--) {
+            long temp = a[end];
+            a[end] = a[from];
+            a[from] = temp;
+            siftDown(a, from, from, end);
+        }
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        heapify(a, from, to);
+        for (int end = to - 1; end > from; end--) {
+            double temp = a[end];
+            a[end] = a[from];
+            a[from] = temp;
+            siftDown(a, from, from, end);
+        }
+    }
+
+    /**
+     * Puts a[from, to) into a max-heap rooted at from
+     * @param a randomly assorted numbers
+     * @param from position of the root
+     * @param to end of the heap, exclusive
+     */
+    static void heapify(int[] a, int from, int to) {
+        for (int start = from + (to - from) / 2 - 1; start >= from; start--)
+            siftDown(a, from, start, to);
+    }
+
+    static void heapify(long[] a, int from, int to) {
+        for (int start = from + (to - from) / 2 - 1; start >= from; start--)
+            siftDown(a, from, start, to);
+    }
+
+    static void heapify(double[] a, int from, int to) {
+        for (int start = from + (to - from) / 2 - 1; start >= from; start--)
+            siftDown(a, from, start, to);
+    }
+
+    /**
+     * Repairs a heap; can be used for sub trees.
+     * Holds the sifted value aside and shifts children up, writing it once at its final slot.
+     * @param a the main heap
+     * @param from position of the heap's root; children of i are found relative to it
+     * @param root the position of the sub tree's root node
+     * @param to the end of the heap, exclusive
+     * @return the position the sifted value ended at; every position written lies on its path up to root
+     */
+    static int siftDown(int[] a, int from, int root, int to) {
+        int value = a[root];
+        SortStats.read(1);
+        // Nodes below half have at least one child; also keeps 2 * i + 1 from overflowing
+        int half = from + ((to - from) >>> 1);
+        while (root < half) {
+            int child = from + 2 * (root - from) + 1; // Left Child
+            if (SortStats.ENABLED) {
+                int children = child + 1 < to ? 2 : 1;
+                SortStats.compare(children);
+                SortStats.read(children);
+            }
+            if (child + 1 < to && a[child] < a[child + 1])
+                child++;
+            if (value >= a[child])
+                break;
+            a[root] = a[child];
+            SortStats.write(1);
+            root = child;
+        }
+        a[root] = value;
+        SortStats.write(1);
+        return root;
+    }
+
+    static void siftDown(long[] a, int from, int root, int to) {
+        long value = a[root];
+        int half = from + ((to - from) >>> 1);
+        while (root < half) {
+            int child = from + 2 * (root - from) + 1;
+            if (child + 1 < to && a[child] < a[child + 1])
+                child++;
+            if (value >= a[child])
+                break;
+            a[root] = a[child];
+            root = child;
+        }
+        a[root] = value;
+    }
+
+    static void siftDown(double[] a, int from, int root, int to) {
+        double value = a[root];
+        int half = from + ((to - from) >>> 1);
+        while (root < half) {
+            int child = from + 2 * (root - from) + 1;
+            if (child + 1 < to && a[child] < a[child + 1])
+                child++;
+            if (value >= a[child])
+                break;
+            a[root] = a[child];
+            root = child;
+        }
+        a[root] = value;
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        heapify(a, from, to, c);
+        for (int end = to - 1; end > from; end--) {
+            T temp = a[end];
+            a[end] = a[from];
+            a[from] = temp;
+            siftDown(a, from, from, end, c);
+        }
+    }
+
+    static <T> void heapify(T[] a, int from, int to, Comparator<? super T> c) {
+        for (int start = from + (to - from) / 2 - 1; start >= from; start--)
+            siftDown(a, from, start, to, c);
+    }
+
+    static <T> void siftDown(T[] a, int from, int root, int to, Comparator<? super T> c) {
+        T value = a[root];
+        int half = from + ((to - from) >>> 1);
+        while (root < half) {
+            int child = from + 2 * (root - from) + 1;
+            if (child + 1 < to && c.compare(a[child], a[child + 1]) < 0)
+                child++;
+            if (c.compare(value, a[child]) >= 0)
+                break;
+            a[root] = a[child];
+            root = child;
+        }
+        a[root] = value;
+    }
+}
@@ -0,0 +1,438 @@
+package sorting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps ints that arrive over time in sorted order, so they can be read back sorted at any point without
+ * sorting everything again for each batch.
+ * <p>
+ * Numbers are collected in a buffer. When it fills it is sorted and kept as a run, and the runs are organised
+ * like a log-structured merge tree: once a level holds fan-in runs, a background thread k-way merges them into
+ * one run on the next level up. Each number is therefore merged about log_fanIn(n / bufferSize) times. Runs
+ * are never changed after they are made, so a query takes a snapshot of the current runs and a sorted copy of
+ * the buffer and merges them lazily through a min-heap of run heads without holding the lock.
+ * <p>
+ * A run is an array, so no merge may make one longer than {@link #MAX_RUN_LENGTH}. Runs that would merge into
+ * a longer one are taken out of their level and kept on a top level that is never merged; queries read them
+ * like any other run.
+ * <p>
+ * Every method is safe to call from any thread. Numbers added are visible to every query that starts after
+ * the add returns.
+ */
+public final class IncrementalSort implements AutoCloseable {
+    /** Numbers buffered before they are sorted into a run, when not given */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /** Runs on one level that are merged together, when not given */
+    public static final int DEFAULT_FAN_IN = 4;
+    /** Longest run a merge makes; the longest array most JVMs can allocate */
+    static final long MAX_RUN_LENGTH = Integer.MAX_VALUE - 8;
+    /** Exclusive upper bound that takes in every int */
+    private static final long ALL = Integer.MAX_VALUE + 1L;
+
+    private final int fanIn;
+    private final long maxRunLength;
+    private final Algorithm algorithm;
+    private final ExecutorService merger;
+
+    private final Object lock = new Object();
+    // Everything below is guarded by lock
+    private final int[] buffer;
+    private int buffered;
+    /** Sorted runs per level; level i runs hold about bufferSize * fanIn^i numbers */
+    private final List<List<int[]>> levels = new ArrayList<>();
+    /** Runs too long to merge any further */
+    private final List<int[]> top = new ArrayList<>();
+    private long size;
+    private boolean merging;
+    private boolean closed;
+
+    /**
+     * Uses the default buffer size and fan-in, and radix sorts each buffer
+     */
+    public IncrementalSort() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_FAN_IN, Algorithm.RADIX);
+    }
+
+    /**
+     * @param bufferSize numbers collected before they are sorted into a run
+     * @param fanIn number of runs on one level that are merged into one
+     * @param algorithm in-memory algorithm for sorting each full buffer
+     */
+    public IncrementalSort(int bufferSize, int fanIn, Algorithm algorithm) {
+        this(bufferSize, fanIn, algorithm, MAX_RUN_LENGTH);
+    }
+
+    /**
+     * @param maxRunLength longest run a merge may make; lowered from {@link #MAX_RUN_LENGTH} to reach the cap
+     * with few numbers
+     */
+    IncrementalSort(int bufferSize, int fanIn, Algorithm algorithm, long maxRunLength) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        if (fanIn < 2)
+            throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+        if (maxRunLength < 1 || maxRunLength > MAX_RUN_LENGTH)
+            throw new IllegalArgumentException("Run length cap must be from 1 to " + MAX_RUN_LENGTH + ": "
+                    + maxRunLength);
+        this.buffer = new int[bufferSize];
+        this.fanIn = fanIn;
+        this.maxRunLength = maxRunLength;
+        this.algorithm = algorithm;
+        this.merger = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "incremental-sort-merge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void add(int value) {
+        synchronized (lock) {
+            checkOpen();
+            buffer[buffered++] = value;
+            size++;
+            if (buffered == buffer.length)
+                flushBuffer();
+        }
+    }
+
+    public void addAll(int[] batch) {
+        addAll(batch, 0, batch.length);
+    }
+
+    /**
+     * Adds batch[from, to)
+     * @param batch numbers to add; copied, so it can be reused once this returns
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     */
+    public void addAll(int[] batch, int from, int to) {
+        synchronized (lock) {
+            checkOpen();
+            while (from < to) {
+                int n = Math.min(to - from, buffer.length - buffered);
+                System.arraycopy(batch, from, buffer, buffered, n);
+                buffered += n;
+                size += n;
+                from += n;
+                if (buffered == buffer.length)
+                    flushBuffer();
+            }
+        }
+    }
+
+    /**
+     * Adds every number of a stream, which may be one that never ends
+     */
+    public void addAll(IntStream values) {
+        values.forEach(this::add);
+    }
+
+    /**
+     * Adds every batch currently waiting in a queue without blocking for more
+     * @param queue batches from a producer
+     * @return number of batches taken
+     */
+    public int drainFrom(BlockingQueue<int[]> queue) {
+        Collection<int[]> batches = new ArrayList<>();
+        queue.drainTo(batches);
+        for (int[] batch : batches)
+            addAll(batch);
+        return batches.size();
+    }
+
+    /**
+     * Sorts whatever is buffered into a run now rather than waiting for the buffer to fill
+     */
+    public void flush() {
+        synchronized (lock) {
+            checkOpen();
+            if (buffered > 0)
+                flushBuffer();
+        }
+    }
+
+    /**
+     * @return how many numbers have been added
+     */
+    public long size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * @return how many sorted runs a query currently merges, not counting the buffer
+     */
+    public int runCount() {
+        synchronized (lock) {
+            int count = top.size();
+            for (List<int[]> level : levels)
+                count += level.size();
+            return count;
+        }
+    }
+
+    /**
+     * @return every number added so far, in ascending order
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new RunMerger(snapshot(), Integer.MIN_VALUE, ALL);
+    }
+
+    /**
+     * Numbers in [low, high) added so far, in ascending order. Each run is binary searched for the range, so
+     * only the numbers in it are read.
+     * @param low smallest number wanted, inclusive
+     * @param high end of the numbers wanted, exclusive
+     */
+    public PrimitiveIterator.OfInt range(int low, int high) {
+        return new RunMerger(snapshot(), low, high);
+    }
+
+    /**
+     * @return a sorted copy of every number added so far
+     * @throws IllegalStateException if more numbers have been added than fit in an array
+     */
+    public int[] toArray() {
+        List<int[]> runs = snapshot();
+        long total = 0;
+        for (int[] run : runs)
+            total += run.length;
+        if (total > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Too many numbers for one array: " + total);
+
+        int[] sorted = new int[(int) total];
+        RunMerger merged = new RunMerger(runs, Integer.MIN_VALUE, ALL);
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = merged.nextInt();
+        return sorted;
+    }
+
+    /**
+     * Stops accepting numbers and lets any merge in progress finish in the background
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        merger.shutdown();
+    }
+
+    /**
+     * @return the current runs plus a sorted copy of the buffer
+     */
+    private List<int[]> snapshot() {
+        int[] head;
+        List<int[]> runs = new ArrayList<>();
+        synchronized (lock) {
+            for (List<int[]> level : levels)
+                runs.addAll(level);
+            runs.addAll(top);
+            head = new int[buffered];
+            System.arraycopy(buffer, 0, head, 0, buffered);
+        }
+        algorithm.sort(head);
+        runs.add(head);
+        return runs;
+    }
+
+    /**
+     * Sorts the buffer into a new run on level 0 and empties it; lock must be held
+     */
+    private void flushBuffer() {
+        int[] run = new int[buffered];
+        System.arraycopy(buffer, 0, run, 0, buffered);
+        algorithm.sort(run);
+        buffered = 0;
+        addRun(0, run);
+        if (!merging && fullLevel() >= 0) {
+            merging = true;
+            try {
+                merger.execute(this::mergeLevels);
+            } catch (RejectedExecutionException e) {
+                // The runs are all still queryable, just unmerged; the next flush asks again
+                merging = false;
+            }
+        }
+    }
+
+    private void addRun(int level, int[] run) {
+        while (levels.size() <= level)
+            levels.add(new ArrayList<>());
+        levels.get(level).add(run);
+    }
+
+    /**
+     * Finds the lowest level whose first fan-in runs can be merged. Where they would merge into a run longer
+     * than maxRunLength, the longest of them moves to the top level instead, until they fit or the level no
+     * longer holds fan-in runs. Lock must be held.
+     * @return the level, or -1 if no level holds fan-in runs
+     */
+    private int fullLevel() {
+        for (int i = 0; i < levels.size(); i++) {
+            List<int[]> level = levels.get(i);
+            while (level.size() >= fanIn) {
+                long total = 0;
+                int longest = 0;
+                for (int r = 0; r < fanIn; r++) {
+                    total += level.get(r).length;
+                    if (level.get(r).length > level.get(longest).length)
+                        longest = r;
+                }
+                if (total <= maxRunLength)
+                    return i;
+                top.add(level.remove(longest));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Runs on the merge thread until no level is full. The runs being merged stay visible to queries until
+     * the merged run replaces them in one step, so a query sees one or the other, never both. A merge that
+     * throws leaves its inputs in place and lets the next flush start merging again.
+     */
+    private void mergeLevels() {
+        try {
+            mergeFullLevels();
+        } catch (RuntimeException | Error e) {
+            synchronized (lock) {
+                merging = false;
+            }
+            throw e;
+        }
+    }
+
+    private void mergeFullLevels() {
+        while (true) {
+            int level;
+            List<int[]> inputs;
+            synchronized (lock) {
+                level = fullLevel();
+                if (level < 0) {
+                    merging = false;
+                    return;
+                }
+                inputs = new ArrayList<>(levels.get(level).subList(0, fanIn));
+            }
+
+            // fullLevel only picks runs that fit in maxRunLength together
+            long total = 0;
+            for (int[] run : inputs)
+                total += run.length;
+            int[] merged = new int[(int) total];
+            RunMerger m = new RunMerger(inputs, Integer.MIN_VALUE, ALL);
+            for (int i = 0; i < merged.length; i++)
+                merged[i] = m.nextInt();
+
+            synchronized (lock) {
+                levels.get(level).subList(0, fanIn).clear();
+                addRun(level + 1, merged);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Incremental sort is closed");
+    }
+
+    /**
+     * @return the first index in run whose number is at least key
+     */
+    private static int lowerBound(int[] run, long key) {
+        int lo = 0, hi = run.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (run[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * K-way merges a slice of each sorted run through a min-heap of the runs' current numbers
+     */
+    private static final class RunMerger implements PrimitiveIterator.OfInt {
+        private final int[][] runs;
+        private final int[] pos, end, heads, heap;
+        private int size;
+
+        /**
+         * @param runs sorted runs, not changed while merging
+         * @param low smallest number to return, inclusive
+         * @param high end of the numbers to return, exclusive
+         */
+        RunMerger(List<int[]> runs, long low, long high) {
+            int k = runs.size();
+            this.runs = runs.toArray(new int[k][]);
+            pos = new int[k];
+            end = new int[k];
+            heads = new int[k];
+            heap = new int[k];
+            for (int r = 0; r < k; r++) {
+                int[] run = this.runs[r];
+                pos[r] = lowerBound(run, low);
+                end[r] = lowerBound(run, high);
+                if (pos[r] < end[r]) {
+                    heads[r] = run[pos[r]];
+                    heap[size++] = r;
+                }
+            }
+            for (int start = size / 2 - 1; start >= 0; start--)
+                siftDown(start);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (size == 0)
+                throw new NoSuchElementException();
+            int r = heap[0];
+            int value = heads[r];
+            if (++pos[r] < end[r])
+                heads[r] = runs[r][pos[r]];
+            else
+                heap[0] = heap[--size];
+            siftDown(0);
+            return value;
+        }
+
+        /**
+         * Repairs the min-heap of run indices; the same walk as ExternalSort's run heap
+         */
+        private void siftDown(int root) {
+            if (size == 0)
+                return;
+            int run = heap[root];
+            int value = heads[run];
+            int half = size >>> 1;
+            while (root < half) {
+                int child = 2 * root + 1;
+                if (child + 1 < size && heads[heap[child + 1]] < heads[heap[child]])
+                    child++;
+                if (value <= heads[heap[child]])
+                    break;
+                heap[root] = heap[child];
+                root = child;
+            }
+            heap[root] = run;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package sorting;
+
+import java.util.Comparator;
+
+/**
+ * Insertion sort over primitive arrays, and object arrays with a comparator.
+ * Compares with the previous number and shifts it down until it sits in ascending order.
+ * The double variants order by {@code <} and do not support NaN.
+ */
+public final class InsertionSort {
+
+    private InsertionSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every insertion; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        for (int i = from + 1; i < to; i++) {
+            int cur = a[i];
+            int j = i;
+
+            // Shift larger numbers up until the slot for cur is found
+            while (j > from && a[j - 1] > cur) {
+                a[j] = a[j - 1];
+                j--;
+            }
+            a[j] = cur;
+
+            if (SortStats.ENABLED) {
+                // One comparison per shift, plus the one that stopped it unless it reached the front
+                int shifts = i - j, compares = shifts + (j > from ? 1 : 0);
+                SortStats.compare(compares);
+                SortStats.read(1 + compares);
+                SortStats.write(shifts + 1);
+            }
+
+            if (observer != null) {
+                observer.write(j, i + 1);
+                if (j > from)
+                    observer.compare(j - 1, j);
+                observer.step();
+            }
+        }
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long cur = a[i];
+            int j = i;
+            while (j > from && a[j - 1] > cur) {
+                a[j] = a[j - 1];
+                j--;
+            }
+            a[j] = cur;
+        }
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            double cur = a[i];
+            int j = i;
+            while (j > from && a[j - 1] > cur) {
+                a[j] = a[j - 1];
+                j--;
+            }
+            a[j] = cur;
+        }
+    }
+
+    /**
+     * Finds the order that would sort a, leaving a as it is
+     * @param a numbers to be ordered
+     * @return indices into a such that a[perm[0]] &lt;= a[perm[1]] &lt;= ...; equal numbers keep their order
+     */
+    public static int[] argsort(int[] a) {
+        int[] perm = Permutation.identity(a.length);
+        for (int i = 1; i < perm.length; i++) {
+            int p = perm[i], cur = a[p];
+            int j = i;
+            while (j > 0 && a[perm[j - 1]] > cur) {
+                perm[j] = perm[j - 1];
+                j--;
+            }
+            perm[j] = p;
+        }
+        return perm;
+    }
+
+    public static int[] argsort(long[] a) {
+        int[] perm = Permutation.identity(a.length);
+        for (int i = 1; i < perm.length; i++) {
+            int p = perm[i];
+            long cur = a[p];
+            int j = i;
+            while (j > 0 && a[perm[j - 1]] > cur) {
+                perm[j] = perm[j - 1];
+                j--;
+            }
+            perm[j] = p;
+        }
+        return perm;
+    }
+
+    public static int[] argsort(double[] a) {
+        int[] perm = Permutation.identity(a.length);
+        for (int i = 1; i < perm.length; i++) {
+            int p = perm[i];
+            double cur = a[p];
+            int j = i;
+            while (j > 0 && a[perm[j - 1]] > cur) {
+                perm[j] = perm[j - 1];
+                j--;
+            }
+            perm[j] = p;
+        }
+        return perm;
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        for (int i = from + 1; i < to; i++) {
+            T cur = a[i];
+            int j = i;
+            while (j > from && c.compare(a[j - 1], cur) > 0) {
+                a[j] = a[j - 1];
+                j--;
+            }
+            a[j] = cur;
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package sorting;
+
+import java.util.Comparator;
+
+/**
+ * Introspective quick sort over primitive arrays, and object arrays with a comparator.
+ * <p>
+ * Five evenly spaced samples are sorted (each taken as the median of three neighbours on large ranges, a ninther),
+ * and the second and fourth become two pivots for a dual-pivot partition into less than, between and greater than.
+ * When the samples say both pivots are equal the range is full of duplicates, so it is split three ways around
+ * that one value instead and the equal block is never looked at again.
+ * Small ranges are finished with insertion sort, or a {@link SortingNetwork} under {@code -Dsorting.leaf=network},
+ * and once partitioning has gone 2 log2(n) levels deep without finishing the remaining range is handed to
+ * {@link HeapSort}, which bounds the worst case at O(n log n).
+ * The double variants order by {@code <} and do not support NaN.
+ */
+public final class IntroSort {
+    /** Ranges at or below this many numbers are finished with insertion sort or a sorting network */
+    private static final int INSERTION_CUTOFF = 24;
+    /** Ranges above this many numbers take each sample as the median of three neighbours */
+    private static final int NINTHER_THRESHOLD = 1024;
+
+    private IntroSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every partition; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        introSort(a, from, to - 1, depthLimit(to - from), observer);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        introSort(a, from, to - 1, depthLimit(to - from));
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        introSort(a, from, to - 1, depthLimit(to - from));
+    }
+
+    /**
+     * @return number of partitioning levels allowed before falling back to heap sort, 2 log2(n)
+     */
+    static int depthLimit(int n) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(n, 1)));
+    }
+
+    /**
+     * Partitions a[low, high] and recurses into the parts, looping on the last one
+     * @param a numbers to be sorted
+     * @param low start index
+     * @param high end index, inclusive
+     * @param depth partitioning levels left before switching to heap sort
+     * @param observer notified after every partition; may be null
+     */
+    private static void introSort(int[] a, int low, int high, int depth, SortObserver observer) {
+        SortStats.enter();
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1);
+                if (observer != null)
+                    observer.write(low, high + 1);
+                SortStats.exit();
+                return;
+            }
+
+            // Order five samples; the outer two only bracket the pivots
+            int sixth = (high - low + 1) / 6;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - sixth, e1 = e2 - sixth;
+            int e4 = e3 + sixth, e5 = e4 + sixth;
+            if (high - low >= NINTHER_THRESHOLD) {
+                int d = sixth / 2;
+                e1 = median(a, e1 - d, e1, e1 + d);
+                e2 = median(a, e2 - d, e2, e2 + d);
+                e3 = median(a, e3 - d, e3, e3 + d);
+                e4 = median(a, e4 - d, e4, e4 + d);
+                e5 = median(a, e5 - d, e5, e5 + d);
+            }
+            sortSamples(a, e1, e2, e3, e4, e5);
+
+            long bounds;
+            if (a[e2] != a[e4]) {
+                bounds = dualPivotPartition(a, low, high, e2, e4);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                if (observer != null) {
+                    observer.write(low, high + 1);
+                    observer.compare(lt, gt);
+                }
+                introSort(a, low, lt - 1, depth, observer);
+                introSort(a, lt + 1, gt - 1, depth, observer);
+                low = gt + 1;
+            } else {
+                // Both pivots are equal, so the range is mostly duplicates; only the unequal ends need sorting
+                bounds = threeWayPartition(a, low, high, a[e3]);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                if (observer != null) {
+                    observer.write(low, high + 1);
+                    observer.compare(lt, gt);
+                }
+                introSort(a, low, lt - 1, depth, observer);
+                low = gt + 1;
+            }
+
+            if (observer != null)
+                observer.step();
+        }
+        SortingNetwork.leaf(a, low, high + 1);
+        if (observer != null)
+            observer.write(low, high + 1);
+        SortStats.exit();
+    }
+
+    /**
+     * Partitions a[low, high] into numbers less than the first pivot, between the pivots, and greater than
+     * the second pivot, with each pivot placed between its parts
+     * @param a numbers to partition
+     * @param low start index
+     * @param high end index, inclusive
+     * @param p1 index of the smaller pivot
+     * @param p2 index of the larger pivot
+     * @return final index of the first pivot in the upper 32 bits, of the second pivot in the lower 32 bits
+     */
+    static long dualPivotPartition(int[] a, int low, int high, int p1, int p2) {
+        int pivot1 = a[p1], pivot2 = a[p2];
+        a[p1] = a[low];
+        a[p2] = a[high];
+        a[low] = pivot1;
+        a[high] = pivot2;
+        SortStats.swap();
+        SortStats.swap();
+
+        int lt = low + 1, gt = high - 1;
+        for (int k = lt; k <= gt; k++) {
+            int v = a[k];
+            SortStats.read(1);
+            if (v < pivot1) {
+                a[k] = a[lt];
+                a[lt++] = v;
+                SortStats.compare(1);
+                SortStats.swap();
+            } else if (v > pivot2) {
+                while (a[gt] > pivot2 && k < gt) {
+                    gt--;
+                    SortStats.compare(1);
+                }
+                a[k] = a[gt];
+                a[gt--] = v;
+                v = a[k];
+                SortStats.swap();
+                if (v < pivot1) {
+                    a[k] = a[lt];
+                    a[lt++] = v;
+                    SortStats.swap();
+                }
+                // Both pivot tests, the test that stopped the scan and the recheck of the new a[k]
+                SortStats.compare(4);
+            } else {
+                SortStats.compare(2);
+            }
+        }
+        lt--;
+        gt++;
+        a[low] = a[lt];
+        a[lt] = pivot1;
+        a[high] = a[gt];
+        a[gt] = pivot2;
+        SortStats.swap();
+        SortStats.swap();
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Partitions a[low, high] into numbers less than, equal to and greater than the pivot
+     * @param a numbers to partition
+     * @param low start index
+     * @param high end index, inclusive
+     * @param pivot value to split around
+     * @return first index of the equal block in the upper 32 bits, last index in the lower 32 bits
+     */
+    static long threeWayPartition(int[] a, int low, int high, int pivot) {
+        int lt = low, gt = high, i = low;
+        while (i <= gt) {
+            int v = a[i];
+            SortStats.read(1);
+            if (v < pivot) {
+                a[i++] = a[lt];
+                a[lt++] = v;
+                SortStats.compare(1);
+                SortStats.swap();
+            } else if (v > pivot) {
+                a[i] = a[gt];
+                a[gt--] = v;
+                SortStats.compare(2);
+                SortStats.swap();
+            } else {
+                i++;
+                SortStats.compare(2);
+            }
+        }
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return whichever of the three indices holds the median number
+     */
+    static int median(int[] a, int i, int j, int k) {
+        if (SortStats.ENABLED) {
+            SortStats.compare(3);
+            SortStats.read(3);
+        }
+        if (a[i] < a[j])
+            return a[j] < a[k] ? j : (a[i] < a[k] ? k : i);
+        return a[i] < a[k] ? i : (a[j] < a[k] ? k : j);
+    }
+
+    /**
+     * Sorts the numbers at the five sample positions with a nine comparator sorting network
+     */
+    private static void sortSamples(int[] a, int e1, int e2, int e3, int e4, int e5) {
+        order(a, e1, e2);
+        order(a, e4, e5);
+        order(a, e3, e5);
+        order(a, e3, e4);
+        order(a, e1, e4);
+        order(a, e1, e3);
+        order(a, e2, e5);
+        order(a, e2, e4);
+        order(a, e2, e3);
+    }
+
+    /**
+     * Swaps a[i] and a[j] if they are out of order
+     */
+    private static void order(int[] a, int i, int j) {
+        SortStats.compare(1);
+        SortStats.read(2);
+        if (a[j] < a[i]) {
+            int temp = a[i];
+            a[i] = a[j];
+            a[j] = temp;
+            SortStats.swap();
+        }
+    }
+
+    private static void introSort(long[] a, int low, int high, int depth) {
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+
+            int sixth = (high - low + 1) / 6;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - sixth, e1 = e2 - sixth;
+            int e4 = e3 + sixth, e5 = e4 + sixth;
+            if (high - low >= NINTHER_THRESHOLD) {
+                int d = sixth / 2;
+                e1 = median(a, e1 - d, e1, e1 + d);
+                e2 = median(a, e2 - d, e2, e2 + d);
+                e3 = median(a, e3 - d, e3, e3 + d);
+                e4 = median(a, e4 - d, e4, e4 + d);
+                e5 = median(a, e5 - d, e5, e5 + d);
+            }
+            sortSamples(a, e1, e2, e3, e4, e5);
+
+            long bounds;
+            if (a[e2] != a[e4]) {
+                bounds = dualPivotPartition(a, low, high, e2, e4);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth);
+                introSort(a, lt + 1, gt - 1, depth);
+                low = gt + 1;
+            } else {
+                bounds = threeWayPartition(a, low, high, a[e3]);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth);
+                low = gt + 1;
+            }
+        }
+        SortingNetwork.leaf(a, low, high + 1);
+    }
+
+    static long dualPivotPartition(long[] a, int low, int high, int p1, int p2) {
+        long pivot1 = a[p1], pivot2 = a[p2];
+        a[p1] = a[low];
+        a[p2] = a[high];
+        a[low] = pivot1;
+        a[high] = pivot2;
+
+        int lt = low + 1, gt = high - 1;
+        for (int k = lt; k <= gt; k++) {
+            long v = a[k];
+            if (v < pivot1) {
+                a[k] = a[lt];
+                a[lt++] = v;
+            } else if (v > pivot2) {
+                while (a[gt] > pivot2 && k < gt)
+                    gt--;
+                a[k] = a[gt];
+                a[gt--] = v;
+                v = a[k];
+                if (v < pivot1) {
+                    a[k] = a[lt];
+                    a[lt++] = v;
+                }
+            }
+        }
+        lt--;
+        gt++;
+        a[low] = a[lt];
+        a[lt] = pivot1;
+        a[high] = a[gt];
+        a[gt] = pivot2;
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static long threeWayPartition(long[] a, int low, int high, long pivot) {
+        int lt = low, gt = high, i = low;
+        while (i <= gt) {
+            long v = a[i];
+            if (v < pivot) {
+                a[i++] = a[lt];
+                a[lt++] = v;
+            } else if (v > pivot) {
+                a[i] = a[gt];
+                a[gt--] = v;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static int median(long[] a, int i, int j, int k) {
+        if (a[i] < a[j])
+            return a[j] < a[k] ? j : (a[i] < a[k] ? k : i);
+        return a[i] < a[k] ? i : (a[j] < a[k] ? k : j);
+    }
+
+    private static void sortSamples(long[] a, int e1, int e2, int e3, int e4, int e5) {
+        order(a, e1, e2);
+        order(a, e4, e5);
+        order(a, e3, e5);
+        order(a, e3, e4);
+        order(a, e1, e4);
+        order(a, e1, e3);
+        order(a, e2, e5);
+        order(a, e2, e4);
+        order(a, e2, e3);
+    }
+
+    private static void order(long[] a, int i, int j) {
+        if (a[j] < a[i]) {
+            long temp = a[i];
+            a[i] = a[j];
+            a[j] = temp;
+        }
+    }
+
+    private static void introSort(double[] a, int low, int high, int depth) {
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+
+            int sixth = (high - low + 1) / 6;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - sixth, e1 = e2 - sixth;
+            int e4 = e3 + sixth, e5 = e4 + sixth;
+            if (high - low >= NINTHER_THRESHOLD) {
+                int d = sixth / 2;
+                e1 = median(a, e1 - d, e1, e1 + d);
+                e2 = median(a, e2 - d, e2, e2 + d);
+                e3 = median(a, e3 - d, e3, e3 + d);
+                e4 = median(a, e4 - d, e4, e4 + d);
+                e5 = median(a, e5 - d, e5, e5 + d);
+            }
+            sortSamples(a, e1, e2, e3, e4, e5);
+
+            long bounds;
+            if (a[e2] != a[e4]) {
+                bounds = dualPivotPartition(a, low, high, e2, e4);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth);
+                introSort(a, lt + 1, gt - 1, depth);
+                low = gt + 1;
+            } else {
+                bounds = threeWayPartition(a, low, high, a[e3]);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth);
+                low = gt + 1;
+            }
+        }
+        SortingNetwork.leaf(a, low, high + 1);
+    }
+
+    static long dualPivotPartition(double[] a, int low, int high, int p1, int p2) {
+        double pivot1 = a[p1], pivot2 = a[p2];
+        a[p1] = a[low];
+        a[p2] = a[high];
+        a[low] = pivot1;
+        a[high] = pivot2;
+
+        int lt = low + 1, gt = high - 1;
+        for (int k = lt; k <= gt; k++) {
+            double v = a[k];
+            if (v < pivot1) {
+                a[k] = a[lt];
+                a[lt++] = v;
+            } else if (v > pivot2) {
+                while (a[gt] > pivot2 && k < gt)
+                    gt--;
+                a[k] = a[gt];
+                a[gt--] = v;
+                v = a[k];
+                if (v < pivot1) {
+                    a[k] = a[lt];
+                    a[lt++] = v;
+                }
+            }
+        }
+        lt--;
+        gt++;
+        a[low] = a[lt];
+        a[lt] = pivot1;
+        a[high] = a[gt];
+        a[gt] = pivot2;
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static long threeWayPartition(double[] a, int low, int high, double pivot) {
+        int lt = low, gt = high, i = low;
+        while (i <= gt) {
+            double v = a[i];
+            if (v < pivot) {
+                a[i++] = a[lt];
+                a[lt++] = v;
+            } else if (v > pivot) {
+                a[i] = a[gt];
+                a[gt--] = v;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static int median(double[] a, int i, int j, int k) {
+        if (a[i] < a[j])
+            return a[j] < a[k] ? j : (a[i] < a[k] ? k : i);
+        return a[i] < a[k] ? i : (a[j] < a[k] ? k : j);
+    }
+
+    private static void sortSamples(double[] a, int e1, int e2, int e3, int e4, int e5) {
+        order(a, e1, e2);
+        order(a, e4, e5);
+        order(a, e3, e5);
+        order(a, e3, e4);
+        order(a, e1, e4);
+        order(a, e1, e3);
+        order(a, e2, e5);
+        order(a, e2, e4);
+        order(a, e2, e3);
+    }
+
+    private static void order(double[] a, int i, int j) {
+        if (a[j] < a[i]) {
+            double temp = a[i];
+            a[i] = a[j];
+            a[j] = temp;
+        }
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        introSort(a, from, to - 1, depthLimit(to - from), c);
+    }
+
+    private static <T> void introSort(T[] a, int low, int high, int depth, Comparator<? super T> c) {
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1, c);
+                return;
+            }
+
+            int sixth = (high - low + 1) / 6;
+            int e3 = (low + high) >>> 1;
+            int e2 = e3 - sixth, e1 = e2 - sixth;
+            int e4 = e3 + sixth, e5 = e4 + sixth;
+            if (high - low >= NINTHER_THRESHOLD) {
+                int d = sixth / 2;
+                e1 = median(a, e1 - d, e1, e1 + d, c);
+                e2 = median(a, e2 - d, e2, e2 + d, c);
+                e3 = median(a, e3 - d, e3, e3 + d, c);
+                e4 = median(a, e4 - d, e4, e4 + d, c);
+                e5 = median(a, e5 - d, e5, e5 + d, c);
+            }
+            sortSamples(a, e1, e2, e3, e4, e5, c);
+
+            long bounds;
+            if (c.compare(a[e2], a[e4]) != 0) {
+                bounds = dualPivotPartition(a, low, high, e2, e4, c);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth, c);
+                introSort(a, lt + 1, gt - 1, depth, c);
+                low = gt + 1;
+            } else {
+                bounds = threeWayPartition(a, low, high, a[e3], c);
+                int lt = (int) (bounds >>> 32), gt = (int) bounds;
+                introSort(a, low, lt - 1, depth, c);
+                low = gt + 1;
+            }
+        }
+        InsertionSort.sort(a, low, high + 1, c);
+    }
+
+    static <T> long dualPivotPartition(T[] a, int low, int high, int p1, int p2, Comparator<? super T> c) {
+        T pivot1 = a[p1], pivot2 = a[p2];
+        a[p1] = a[low];
+        a[p2] = a[high];
+        a[low] = pivot1;
+        a[high] = pivot2;
+
+        int lt = low + 1, gt = high - 1;
+        for (int k = lt; k <= gt; k++) {
+            T v = a[k];
+            if (c.compare(v, pivot1) < 0) {
+                a[k] = a[lt];
+                a[lt++] = v;
+            } else if (c.compare(v, pivot2) > 0) {
+                while (c.compare(a[gt], pivot2) > 0 && k < gt)
+                    gt--;
+                a[k] = a[gt];
+                a[gt--] = v;
+                v = a[k];
+                if (c.compare(v, pivot1) < 0) {
+                    a[k] = a[lt];
+                    a[lt++] = v;
+                }
+            }
+        }
+        lt--;
+        gt++;
+        a[low] = a[lt];
+        a[lt] = pivot1;
+        a[high] = a[gt];
+        a[gt] = pivot2;
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static <T> long threeWayPartition(T[] a, int low, int high, T pivot, Comparator<? super T> c) {
+        int lt = low, gt = high, i = low;
+        while (i <= gt) {
+            T v = a[i];
+            int cmp = c.compare(v, pivot);
+            if (cmp < 0) {
+                a[i++] = a[lt];
+                a[lt++] = v;
+            } else if (cmp > 0) {
+                a[i] = a[gt];
+                a[gt--] = v;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static <T> int median(T[] a, int i, int j, int k, Comparator<? super T> c) {
+        if (c.compare(a[i], a[j]) < 0)
+            return c.compare(a[j], a[k]) < 0 ? j : (c.compare(a[i], a[k]) < 0 ? k : i);
+        return c.compare(a[i], a[k]) < 0 ? i : (c.compare(a[j], a[k]) < 0 ? k : j);
+    }
+
+    private static <T> void sortSamples(T[] a, int e1, int e2, int e3, int e4, int e5, Comparator<? super T> c) {
+        order(a, e1, e2, c);
+        order(a, e4, e5, c);
+        order(a, e3, e5, c);
+        order(a, e3, e4, c);
+        order(a, e1, e4, c);
+        order(a, e1, e3, c);
+        order(a, e2, e5, c);
+        order(a, e2, e4, c);
+        order(a, e2, e3, c);
+    }
+
+    private static <T> void order(T[] a, int i, int j, Comparator<? super T> c) {
+        if (c.compare(a[j], a[i]) < 0) {
+            T temp = a[i];
+            a[i] = a[j];
+            a[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package sorting;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorts objects by a primitive key, for records ordered by a numeric field.
+ * Each object's key is read exactly once into a primitive array, the keys are radix argsorted, and the
+ * objects are then moved into place in one pass. Nothing compares objects or calls back into them while
+ * sorting, unlike a {@link java.util.Comparator}. Equal keys keep their order.
+ */
+public final class KeySort {
+    private KeySort() {
+    }
+
+    public static <T> void sortByInt(T[] a, ToIntFunction<? super T> key) {
+        sortByInt(a, 0, a.length, key);
+    }
+
+    public static <T> void sortByLong(T[] a, ToLongFunction<? super T> key) {
+        sortByLong(a, 0, a.length, key);
+    }
+
+    /**
+     * Sorts a[from, to) by ascending int key; equal keys keep their order
+     * @param a objects to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param key reads an object's key; called once per object
+     */
+    public static <T> void sortByInt(T[] a, int from, int to, ToIntFunction<? super T> key) {
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = key.applyAsInt(a[from + i]);
+        gather(a, from, RadixSort.argsort(keys));
+    }
+
+    /**
+     * Sorts a[from, to) by ascending long key; equal keys keep their order
+     * @param a objects to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param key reads an object's key; called once per object
+     */
+    public static <T> void sortByLong(T[] a, int from, int to, ToLongFunction<? super T> key) {
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = key.applyAsLong(a[from + i]);
+        gather(a, from, RadixSort.argsort(keys));
+    }
+
+    /**
+     * Sorts a list by ascending int key; equal keys keep their order
+     * @param list objects to be sorted
+     * @param key reads an object's key; called once per object
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sortByInt(List<T> list, ToIntFunction<? super T> key) {
+        Object[] a = list.toArray();
+        sortByInt((T[]) a, 0, a.length, key);
+        Algorithm.setAll(list, a);
+    }
+
+    /**
+     * Sorts a list by ascending long key; equal keys keep their order
+     * @param list objects to be sorted
+     * @param key reads an object's key; called once per object
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sortByLong(List<T> list, ToLongFunction<? super T> key) {
+        Object[] a = list.toArray();
+        sortByLong((T[]) a, 0, a.length, key);
+        Algorithm.setAll(list, a);
+    }
+
+    /**
+     * Moves a[from + perm[i]] to a[from + i] for every i
+     */
+    private static void gather(Object[] a, int from, int[] perm) {
+        Object[] sorted = new Object[perm.length];
+        for (int i = 0; i < perm.length; i++)
+            sorted[i] = a[from + perm[i]];
+        System.arraycopy(sorted, 0, a, from, perm.length);
+    }
+}
@@ -0,0 +1,286 @@
+package sorting;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorts binary files of ints or longs in place through memory-mapped buffers.
+ * <p>
+ * The file is mapped read-write in 1 GiB segments (a single mapping can't pass 2 GiB) and sorted with an
+ * in-place most significant byte radix sort (American flag sort) that reads and writes the mapping directly, so
+ * the numbers are never copied into a Java array and the heap stays small whatever the file size. Each byte level
+ * makes one sequential counting pass over its range before permuting it; buckets of 64 or fewer numbers are
+ * finished with insertion sort. The page cache does the I/O, and the mapping is forced back to disk at the end.
+ * <p>
+ * Run from the command line as {@code MappedSort <file> [int|long] [big|little]}; the defaults are int and big-endian.
+ */
+public final class MappedSort {
+    /** Segment size in bytes; a multiple of every element width */
+    private static final long SEGMENT_BYTES = 1L << 30;
+    /** Buckets at or below this many numbers are finished with insertion sort */
+    private static final int INSERTION_CUTOFF = 64;
+
+    private MappedSort() {
+    }
+
+    /**
+     * Sorts a file of big-endian 4 byte ints in place
+     * @param file file to sort
+     * @throws IOException if the file can't be mapped
+     */
+    public static void sortInts(Path file) throws IOException {
+        sortInts(file, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Sorts a file of 4 byte ints in place
+     * @param file file to sort
+     * @param order byte order of the numbers in the file
+     * @throws IOException if the file can't be mapped
+     */
+    public static void sortInts(Path file, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] maps = map(channel, Integer.BYTES, order);
+            IntRegion a = new IntRegion(maps);
+            msd(a, 0, channel.size() / Integer.BYTES, Integer.BYTES - 1, new long[Integer.BYTES][257], new long[256]);
+            for (MappedByteBuffer map : maps)
+                map.force();
+        }
+    }
+
+    public static void sortLongs(Path file) throws IOException {
+        sortLongs(file, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Sorts a file of 8 byte longs in place
+     * @param file file to sort
+     * @param order byte order of the numbers in the file
+     * @throws IOException if the file can't be mapped
+     */
+    public static void sortLongs(Path file, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] maps = map(channel, Long.BYTES, order);
+            LongRegion a = new LongRegion(maps);
+            msd(a, 0, channel.size() / Long.BYTES, Long.BYTES - 1, new long[Long.BYTES][257], new long[256]);
+            for (MappedByteBuffer map : maps)
+                map.force();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: MappedSort <file> [int|long] [big|little]");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[0]);
+        boolean longs = args.length > 1 && args[1].equals("long");
+        ByteOrder order = args.length > 2 && args[2].equals("little") ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+
+        long startTime = System.nanoTime();
+        if (longs)
+            sortLongs(file, order);
+        else
+            sortInts(file, order);
+        System.out.println("Sorted " + file + " in " + (System.nanoTime() - startTime) / 1000000 + "ms");
+    }
+
+    /**
+     * Maps the whole file read-write in segments
+     * @param channel open file
+     * @param width element size in bytes
+     * @param order byte order of the numbers
+     * @return one buffer per segment
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, int width, ByteOrder order) throws IOException {
+        long size = channel.size();
+        if (size % width != 0)
+            throw new IllegalArgumentException("File is not a whole number of " + width + " byte numbers");
+        MappedByteBuffer[] maps = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+        for (int i = 0; i < maps.length; i++) {
+            long position = i * SEGMENT_BYTES;
+            maps[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(SEGMENT_BYTES, size - position));
+            maps[i].order(order);
+        }
+        return maps;
+    }
+
+    /**
+     * A mapped file viewed as one array of ints, indexed by long
+     */
+    private static final class IntRegion {
+        private static final int SHIFT = Long.numberOfTrailingZeros(SEGMENT_BYTES / Integer.BYTES);
+        private static final long MASK = (1L << SHIFT) - 1;
+        private final IntBuffer[] segments;
+
+        IntRegion(MappedByteBuffer[] maps) {
+            segments = new IntBuffer[maps.length];
+            for (int i = 0; i < maps.length; i++)
+                segments[i] = maps[i].asIntBuffer();
+        }
+
+        int get(long i) {
+            return segments[(int) (i >>> SHIFT)].get((int) (i & MASK));
+        }
+
+        void set(long i, int v) {
+            segments[(int) (i >>> SHIFT)].put((int) (i & MASK), v);
+        }
+    }
+
+    private static final class LongRegion {
+        private static final int SHIFT = Long.numberOfTrailingZeros(SEGMENT_BYTES / Long.BYTES);
+        private static final long MASK = (1L << SHIFT) - 1;
+        private final LongBuffer[] segments;
+
+        LongRegion(MappedByteBuffer[] maps) {
+            segments = new LongBuffer[maps.length];
+            for (int i = 0; i < maps.length; i++)
+                segments[i] = maps[i].asLongBuffer();
+        }
+
+        long get(long i) {
+            return segments[(int) (i >>> SHIFT)].get((int) (i & MASK));
+        }
+
+        void set(long i, long v) {
+            segments[(int) (i >>> SHIFT)].put((int) (i & MASK), v);
+        }
+    }
+
+    /**
+     * Distributes a[lo, hi) by one byte, then recurses into each bucket on the next byte down; the same
+     * American flag sort as {@link RadixSort#sortMsd(int[], int, int, SortObserver)}, with long indices
+     * @param a mapped numbers
+     * @param lo start index
+     * @param hi end index, exclusive
+     * @param level byte to distribute on, 0 being the least significant
+     * @param bounds bucket boundaries per level; bounds[level][b] is the start of bucket b
+     * @param next scratch for the next free slot in each bucket
+     */
+    private static void msd(IntRegion a, long lo, long hi, int level, long[][] bounds, long[] next) {
+        if (hi - lo <= INSERTION_CUTOFF) {
+            insertionSort(a, lo, hi);
+            return;
+        }
+
+        int shift = level * 8;
+        long[] start = bounds[level];
+        Arrays.fill(start, 0);
+        for (long i = lo; i < hi; i++)
+            start[(((a.get(i) ^ Integer.MIN_VALUE) >>> shift) & 0xFF) + 1]++;
+
+        // Every key shares this byte; skip straight to the next one
+        if (start[(((a.get(lo) ^ Integer.MIN_VALUE) >>> shift) & 0xFF) + 1] == hi - lo) {
+            if (level > 0)
+                msd(a, lo, hi, level - 1, bounds, next);
+            return;
+        }
+
+        start[0] = lo;
+        for (int b = 1; b <= 256; b++)
+            start[b] += start[b - 1];
+        System.arraycopy(start, 0, next, 0, 256);
+
+        // Cycle each misplaced number into the next free slot of its bucket
+        for (int b = 0; b < 256; b++) {
+            long end = start[b + 1];
+            while (next[b] < end) {
+                int v = a.get(next[b]);
+                int d = ((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+                while (d != b) {
+                    int t = a.get(next[d]);
+                    a.set(next[d]++, v);
+                    v = t;
+                    d = ((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+                }
+                a.set(next[b]++, v);
+            }
+        }
+
+        if (level > 0) {
+            for (int b = 0; b < 256; b++) {
+                if (start[b + 1] - start[b] > 1)
+                    msd(a, start[b], start[b + 1], level - 1, bounds, next);
+            }
+        }
+    }
+
+    private static void insertionSort(IntRegion a, long lo, long hi) {
+        for (long i = lo + 1; i < hi; i++) {
+            int cur = a.get(i);
+            long j = i;
+            while (j > lo && a.get(j - 1) > cur) {
+                a.set(j, a.get(j - 1));
+                j--;
+            }
+            a.set(j, cur);
+        }
+    }
+
+    private static void msd(LongRegion a, long lo, long hi, int level, long[][] bounds, long[] next) {
+        if (hi - lo <= INSERTION_CUTOFF) {
+            insertionSort(a, lo, hi);
+            return;
+        }
+
+        int shift = level * 8;
+        long[] start = bounds[level];
+        Arrays.fill(start, 0);
+        for (long i = lo; i < hi; i++)
+            start[((int) ((a.get(i) ^ Long.MIN_VALUE) >>> shift) & 0xFF) + 1]++;
+
+        if (start[((int) ((a.get(lo) ^ Long.MIN_VALUE) >>> shift) & 0xFF) + 1] == hi - lo) {
+            if (level > 0)
+                msd(a, lo, hi, level - 1, bounds, next);
+            return;
+        }
+
+        start[0] = lo;
+        for (int b = 1; b <= 256; b++)
+            start[b] += start[b - 1];
+        System.arraycopy(start, 0, next, 0, 256);
+
+        for (int b = 0; b < 256; b++) {
+            long end = start[b + 1];
+            while (next[b] < end) {
+                long v = a.get(next[b]);
+                int d = (int) ((v ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+                while (d != b) {
+                    long t = a.get(next[d]);
+                    a.set(next[d]++, v);
+                    v = t;
+                    d = (int) ((v ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+                }
+                a.set(next[b]++, v);
+            }
+        }
+
+        if (level > 0) {
+            for (int b = 0; b < 256; b++) {
+                if (start[b + 1] - start[b] > 1)
+                    msd(a, start[b], start[b + 1], level - 1, bounds, next);
+            }
+        }
+    }
+
+    private static void insertionSort(LongRegion a, long lo, long hi) {
+        for (long i = lo + 1; i < hi; i++) {
+            long cur = a.get(i);
+            long j = i;
+            while (j > lo && a.get(j - 1) > cur) {
+                a.set(j, a.get(j - 1));
+                j--;
+            }
+            a.set(j, cur);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package sorting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Top-down merge sort over primitive arrays, and object arrays with a comparator.
+ * A single work array is allocated up front and the two arrays swap roles at every level,
+ * so merged runs never have to be copied back.
+ * Under {@code -Dsorting.leaf=network} the primitive variants sort runs of 32 or fewer numbers with a
+ * {@link SortingNetwork} instead of splitting them down to single numbers; the network is not stable, which only
+ * shows as -0.0 and 0.0 trading places.
+ * The double variants order by {@code <} and do not support NaN.
+ */
+public final class MergeSort {
+    /** Runs at or below this many numbers are sorted by a network when {@link SortingNetwork#LEAF} is on */
+    private static final int NETWORK_CUTOFF = 32;
+
+    private MergeSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order; equal numbers keep their order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every merge; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        if (to - from < 2)
+            return;
+        // An observer is told positions in a, so the scratch then lines up with a rather than starting at 0
+        int[] work = observer == null ? Arrays.copyOfRange(a, from, to) : Arrays.copyOf(a, to);
+        int workOff = observer == null ? 0 : from;
+        SortStats.allocate(4L * (to - from));
+        SortStats.move(to - from);
+        split(work, workOff, a, from, 0, to - from, observer);
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        if (to - from < 2)
+            return;
+        long[] work = Arrays.copyOfRange(a, from, to);
+        split(work, 0, a, from, 0, to - from);
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        if (to - from < 2)
+            return;
+        double[] work = Arrays.copyOfRange(a, from, to);
+        split(work, 0, a, from, 0, to - from);
+    }
+
+    /**
+     * Splits the range in half and sorts dst[dstOff + lo, dstOff + hi), using src as scratch.
+     * Both arrays must hold the same numbers in the range on entry.
+     * @param src scratch array, offset by srcOff
+     * @param srcOff index in src of relative position 0
+     * @param dst array receiving the sorted run, offset by dstOff
+     * @param dstOff index in dst of relative position 0
+     * @param lo start position, relative
+     * @param hi end position, relative and exclusive
+     * @param observer notified after every merge; may be null, and otherwise srcOff must equal dstOff, which
+     * makes the positions reported to it the same in both arrays
+     */
+    static void split(int[] src, int srcOff, int[] dst, int dstOff, int lo, int hi, SortObserver observer) {
+        if (hi - lo < 2)
+            return;
+        if (SortingNetwork.LEAF && hi - lo <= NETWORK_CUTOFF) {
+            SortingNetwork.sort(dst, dstOff + lo, dstOff + hi);
+            if (observer != null)
+                observer.write(dstOff + lo, dstOff + hi);
+            return;
+        }
+
+        // Sort both halves into src so they can be merged into dst
+        SortStats.enter();
+        int mid = (lo + hi) >>> 1;
+        split(dst, dstOff, src, srcOff, lo, mid, observer);
+        split(dst, dstOff, src, srcOff, mid, hi, observer);
+        merge(src, srcOff, dst, dstOff, lo, mid, hi);
+        SortStats.exit();
+
+        // Every other level merges into the scratch and leaves a alone; a write report only says where to look
+        if (observer != null) {
+            observer.write(dstOff + lo, dstOff + hi);
+            observer.compare(dstOff + mid - 1, dstOff + mid);
+            observer.step();
+        }
+    }
+
+    static void split(long[] src, int srcOff, long[] dst, int dstOff, int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        if (SortingNetwork.LEAF && hi - lo <= NETWORK_CUTOFF) {
+            SortingNetwork.sort(dst, dstOff + lo, dstOff + hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        split(dst, dstOff, src, srcOff, lo, mid);
+        split(dst, dstOff, src, srcOff, mid, hi);
+        merge(src, srcOff, dst, dstOff, lo, mid, hi);
+    }
+
+    static void split(double[] src, int srcOff, double[] dst, int dstOff, int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        if (SortingNetwork.LEAF && hi - lo <= NETWORK_CUTOFF) {
+            SortingNetwork.sort(dst, dstOff + lo, dstOff + hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        split(dst, dstOff, src, srcOff, lo, mid);
+        split(dst, dstOff, src, srcOff, mid, hi);
+        merge(src, srcOff, dst, dstOff, lo, mid, hi);
+    }
+
+    /**
+     * Merges the sorted runs src[lo, mid) and src[mid, hi) into dst[lo, hi), positions relative to the offsets
+     */
+    private static void merge(int[] src, int srcOff, int[] dst, int dstOff, int lo, int mid, int hi) {
+        int i = srcOff + lo, iEnd = srcOff + mid;
+        int j = iEnd, jEnd = srcOff + hi;
+        int k = dstOff + lo;
+        while (i < iEnd && j < jEnd)
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+
+        // Every number placed so far took one comparison
+        if (SortStats.ENABLED) {
+            int compares = k - dstOff - lo;
+            SortStats.compare(compares);
+            SortStats.read(2L * compares);
+            SortStats.write(compares);
+        }
+
+        // One run is used up; the rest of the other is already in order
+        System.arraycopy(src, i, dst, k, iEnd - i);
+        System.arraycopy(src, j, dst, k + iEnd - i, jEnd - j);
+        SortStats.move(hi - lo - (k - dstOff - lo));
+    }
+
+    private static void merge(long[] src, int srcOff, long[] dst, int dstOff, int lo, int mid, int hi) {
+        int i = srcOff + lo, iEnd = srcOff + mid;
+        int j = iEnd, jEnd = srcOff + hi;
+        int k = dstOff + lo;
+        while (i < iEnd && j < jEnd)
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+        System.arraycopy(src, i, dst, k, iEnd - i);
+        System.arraycopy(src, j, dst, k + iEnd - i, jEnd - j);
+    }
+
+    private static void merge(double[] src, int srcOff, double[] dst, int dstOff, int lo, int mid, int hi) {
+        int i = srcOff + lo, iEnd = srcOff + mid;
+        int j = iEnd, jEnd = srcOff + hi;
+        int k = dstOff + lo;
+        while (i < iEnd && j < jEnd)
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+        System.arraycopy(src, i, dst, k, iEnd - i);
+        System.arraycopy(src, j, dst, k + iEnd - i, jEnd - j);
+    }
+
+    /**
+     * Finds the order that would sort a, leaving a as it is. The same ping-pong merge sort as
+     * {@link #sort(int[])}, over indices compared by the numbers they point at.
+     * @param a numbers to be ordered
+     * @return indices into a such that a[perm[0]] &lt;= a[perm[1]] &lt;= ...; equal numbers keep their order
+     */
+    public static int[] argsort(int[] a) {
+        int[] perm = Permutation.identity(a.length);
+        if (perm.length > 1)
+            argSplit(a, perm.clone(), perm, 0, perm.length);
+        return perm;
+    }
+
+    public static int[] argsort(long[] a) {
+        int[] perm = Permutation.identity(a.length);
+        if (perm.length > 1)
+            argSplit(a, perm.clone(), perm, 0, perm.length);
+        return perm;
+    }
+
+    public static int[] argsort(double[] a) {
+        int[] perm = Permutation.identity(a.length);
+        if (perm.length > 1)
+            argSplit(a, perm.clone(), perm, 0, perm.length);
+        return perm;
+    }
+
+    /**
+     * Sorts the indices dst[lo, hi) by the numbers they point at, using src as scratch
+     */
+    private static void argSplit(int[] a, int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        argSplit(a, dst, src, lo, mid);
+        argSplit(a, dst, src, mid, hi);
+
+        // Take from the right run only when strictly smaller, so equal numbers keep their order
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+            dst[k++] = a[src[j]] < a[src[i]] ? src[j++] : src[i++];
+        System.arraycopy(src, i, dst, k, mid - i);
+        System.arraycopy(src, j, dst, k + mid - i, hi - j);
+    }
+
+    private static void argSplit(long[] a, int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        argSplit(a, dst, src, lo, mid);
+        argSplit(a, dst, src, mid, hi);
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+            dst[k++] = a[src[j]] < a[src[i]] ? src[j++] : src[i++];
+        System.arraycopy(src, i, dst, k, mid - i);
+        System.arraycopy(src, j, dst, k + mid - i, hi - j);
+    }
+
+    private static void argSplit(double[] a, int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        argSplit(a, dst, src, lo, mid);
+        argSplit(a, dst, src, mid, hi);
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+            dst[k++] = a[src[j]] < a[src[i]] ? src[j++] : src[i++];
+        System.arraycopy(src, i, dst, k, mid - i);
+        System.arraycopy(src, j, dst, k + mid - i, hi - j);
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        if (to - from < 2)
+            return;
+        T[] work = Arrays.copyOfRange(a, from, to);
+        split(work, 0, a, from, 0, to - from, c);
+    }
+
+    static <T> void split(T[] src, int srcOff, T[] dst, int dstOff, int lo, int hi, Comparator<? super T> c) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        split(dst, dstOff, src, srcOff, lo, mid, c);
+        split(dst, dstOff, src, srcOff, mid, hi, c);
+
+        int i = srcOff + lo, iEnd = srcOff + mid;
+        int j = iEnd, jEnd = srcOff + hi;
+        for (int k = dstOff + lo, kEnd = dstOff + hi; k < kEnd; k++) {
+            if (i < iEnd && (j >= jEnd || c.compare(src[i], src[j]) <= 0))
+                dst[k] = src[i++];
+            else
+                dst[k] = src[j++];
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package sorting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Sorts ints or longs held outside the Java heap, in direct {@link ByteBuffer}s, with scratch space that is
+ * also outside the heap. Nothing the size of the input is ever allocated on the heap, so the heap can stay
+ * small and the garbage collector never has to copy or scan the numbers.
+ * <p>
+ * The numbers between the buffer's position and limit are sorted in place, in the buffer's byte order, with
+ * the same least significant byte radix sort as {@link RadixSort#sort(int[], int, int, int, SortObserver)}:
+ * one read counts every byte position, passes where every number has the same byte are skipped, and the
+ * numbers move back and forth between the buffer and an equal sized scratch buffer. Callers sorting many
+ * buffers can pass one scratch buffer in and reuse it; otherwise one is allocated with
+ * {@link ByteBuffer#allocateDirect(int)} and left to be freed when it is collected.
+ * <p>
+ * A buffer can't pass 2 GiB; files larger than that sort in place through {@link MappedSort}.
+ */
+public final class OffHeapSort {
+
+    private OffHeapSort() {
+    }
+
+    public static void sortInts(ByteBuffer data) {
+        sortInts(data, null);
+    }
+
+    public static void sortLongs(ByteBuffer data) {
+        sortLongs(data, null);
+    }
+
+    /**
+     * Sorts the 4 byte ints between data's position and limit in ascending order; equal numbers keep their order
+     * @param data numbers to be sorted; position, limit and byte order are left as they are
+     * @param scratch at least as many bytes remaining as data, or null to allocate a direct buffer
+     * @throws IllegalArgumentException if data isn't a whole number of ints or scratch is too small
+     */
+    public static void sortInts(ByteBuffer data, ByteBuffer scratch) {
+        int bytes = data.remaining();
+        if (bytes % Integer.BYTES != 0)
+            throw new IllegalArgumentException(bytes + " bytes is not a whole number of ints");
+        int n = bytes / Integer.BYTES;
+        if (n < 2)
+            return;
+
+        IntBuffer a = data.duplicate().order(data.order()).asIntBuffer();
+        int[][] count = new int[Integer.BYTES][256];
+        for (int i = 0; i < n; i++) {
+            int key = a.get(i) ^ Integer.MIN_VALUE;
+            for (int p = 0; p < Integer.BYTES; p++)
+                count[p][(key >>> (p * 8)) & 0xFF]++;
+        }
+
+        IntBuffer src = a, dst = null;
+        for (int p = 0; p < Integer.BYTES; p++) {
+            int shift = p * 8;
+            int[] start = count[p];
+            if (start[((src.get(0) ^ Integer.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+
+            if (dst == null)
+                dst = scratch(scratch, bytes).asIntBuffer();
+
+            int sum = 0;
+            for (int b = 0; b < 256; b++) {
+                int c = start[b];
+                start[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int v = src.get(i);
+                dst.put(start[((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++, v);
+            }
+
+            IntBuffer t = src; src = dst; dst = t;
+        }
+
+        if (src != a) {
+            a.clear();
+            src.clear();
+            a.put(src);
+        }
+    }
+
+    /**
+     * Sorts the 8 byte longs between data's position and limit in ascending order; equal numbers keep their order
+     * @param data numbers to be sorted; position, limit and byte order are left as they are
+     * @param scratch at least as many bytes remaining as data, or null to allocate a direct buffer
+     * @throws IllegalArgumentException if data isn't a whole number of longs or scratch is too small
+     */
+    public static void sortLongs(ByteBuffer data, ByteBuffer scratch) {
+        int bytes = data.remaining();
+        if (bytes % Long.BYTES != 0)
+            throw new IllegalArgumentException(bytes + " bytes is not a whole number of longs");
+        int n = bytes / Long.BYTES;
+        if (n < 2)
+            return;
+
+        LongBuffer a = data.duplicate().order(data.order()).asLongBuffer();
+        int[][] count = new int[Long.BYTES][256];
+        for (int i = 0; i < n; i++) {
+            long key = a.get(i) ^ Long.MIN_VALUE;
+            for (int p = 0; p < Long.BYTES; p++)
+                count[p][(int) (key >>> (p * 8)) & 0xFF]++;
+        }
+
+        LongBuffer src = a, dst = null;
+        for (int p = 0; p < Long.BYTES; p++) {
+            int shift = p * 8;
+            int[] start = count[p];
+            if (start[(int) ((src.get(0) ^ Long.MIN_VALUE) >>> shift) & 0xFF] == n)
+                continue;
+
+            if (dst == null)
+                dst = scratch(scratch, bytes).asLongBuffer();
+
+            int sum = 0;
+            for (int b = 0; b < 256; b++) {
+                int c = start[b];
+                start[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                long v = src.get(i);
+                dst.put(start[(int) ((v ^ Long.MIN_VALUE) >>> shift) & 0xFF]++, v);
+            }
+
+            LongBuffer t = src; src = dst; dst = t;
+        }
+
+        if (src != a) {
+            a.clear();
+            src.clear();
+            a.put(src);
+        }
+    }
+
+    /**
+     * @return a view of bytes bytes of the given scratch, or of a new direct buffer, in native byte order
+     */
+    private static ByteBuffer scratch(ByteBuffer scratch, int bytes) {
+        if (scratch == null)
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if (scratch.remaining() < bytes)
+            throw new IllegalArgumentException("Scratch has " + scratch.remaining() + " bytes, " + bytes + " needed");
+        ByteBuffer view = scratch.duplicate();
+        view.limit(view.position() + bytes);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,282 @@
+package sorting;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join merge sort over int and long arrays.
+ * Halves are sorted in parallel down to a sequential cutoff, and the merges are split in parallel as well,
+ * so the final merge of two n/2 runs does not run on a single core.
+ * Like {@link MergeSort}, one work array is allocated up front and the arrays swap roles at every level.
+ */
+public final class ParallelMergeSort {
+    /** Ranges at or below this many numbers are sorted or merged on the current thread */
+    public static final int DEFAULT_CUTOFF = 1 << 13;
+
+    private ParallelMergeSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Sorts on a dedicated pool which is shut down afterwards
+     * @param a numbers to be sorted
+     * @param parallelism number of worker threads
+     * @param cutoff range size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void sort(long[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order; equal numbers keep their order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param pool pool to run the tasks in
+     * @param cutoff range size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        checkCutoff(cutoff);
+        if (to - from < 2)
+            return;
+        int[] work = Arrays.copyOfRange(a, from, to);
+        pool.invoke(new IntSortTask(work, 0, a, from, 0, to - from, cutoff));
+    }
+
+    public static void sort(long[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        checkCutoff(cutoff);
+        if (to - from < 2)
+            return;
+        long[] work = Arrays.copyOfRange(a, from, to);
+        pool.invoke(new LongSortTask(work, 0, a, from, 0, to - from, cutoff));
+    }
+
+    private static void checkCutoff(int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+    }
+
+    /**
+     * Sorts dst[dstOff + lo, dstOff + hi) using src as scratch, the same contract as {@link MergeSort#split}
+     */
+    private static final class IntSortTask extends RecursiveAction {
+        private final int[] src, dst;
+        private final int srcOff, dstOff, lo, hi, cutoff;
+
+        IntSortTask(int[] src, int srcOff, int[] dst, int dstOff, int lo, int hi, int cutoff) {
+            this.src = src;
+            this.srcOff = srcOff;
+            this.dst = dst;
+            this.dstOff = dstOff;
+            this.lo = lo;
+            this.hi = hi;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                MergeSort.split(src, srcOff, dst, dstOff, lo, hi, null);
+                return;
+            }
+
+            // Sort both halves into src, then merge them into dst
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new IntSortTask(dst, dstOff, src, srcOff, lo, mid, cutoff),
+                    new IntSortTask(dst, dstOff, src, srcOff, mid, hi, cutoff));
+            new IntMergeTask(src, srcOff + lo, srcOff + mid, srcOff + mid, srcOff + hi, dst, dstOff + lo, cutoff).invoke();
+        }
+    }
+
+    /**
+     * Merges the sorted runs src[lo1, hi1) and src[lo2, hi2) into dst starting at k.
+     * The larger run is split at its middle and the other run at the matching position, then both halves merge in parallel.
+     */
+    private static final class IntMergeTask extends RecursiveAction {
+        private final int[] src, dst;
+        private final int lo1, hi1, lo2, hi2, k, cutoff;
+
+        IntMergeTask(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int k, int cutoff) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.k = k;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            // Below three numbers the larger run can't be split into two non-empty halves
+            int n1 = hi1 - lo1, n2 = hi2 - lo2;
+            if (n1 + n2 <= Math.max(cutoff, 2)) {
+                merge(src, lo1, hi1, lo2, hi2, dst, k);
+                return;
+            }
+
+            // Equal numbers from the left run must stay in front of those from the right run
+            int mid1, mid2;
+            if (n1 >= n2) {
+                mid1 = (lo1 + hi1) >>> 1;
+                mid2 = lowerBound(src, lo2, hi2, src[mid1]);
+            } else {
+                mid2 = (lo2 + hi2) >>> 1;
+                mid1 = upperBound(src, lo1, hi1, src[mid2]);
+            }
+            int k2 = k + (mid1 - lo1) + (mid2 - lo2);
+            invokeAll(new IntMergeTask(src, lo1, mid1, lo2, mid2, dst, k, cutoff),
+                    new IntMergeTask(src, mid1, hi1, mid2, hi2, dst, k2, cutoff));
+        }
+    }
+
+    private static final class LongSortTask extends RecursiveAction {
+        private final long[] src, dst;
+        private final int srcOff, dstOff, lo, hi, cutoff;
+
+        LongSortTask(long[] src, int srcOff, long[] dst, int dstOff, int lo, int hi, int cutoff) {
+            this.src = src;
+            this.srcOff = srcOff;
+            this.dst = dst;
+            this.dstOff = dstOff;
+            this.lo = lo;
+            this.hi = hi;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                MergeSort.split(src, srcOff, dst, dstOff, lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new LongSortTask(dst, dstOff, src, srcOff, lo, mid, cutoff),
+                    new LongSortTask(dst, dstOff, src, srcOff, mid, hi, cutoff));
+            new LongMergeTask(src, srcOff + lo, srcOff + mid, srcOff + mid, srcOff + hi, dst, dstOff + lo, cutoff).invoke();
+        }
+    }
+
+    private static final class LongMergeTask extends RecursiveAction {
+        private final long[] src, dst;
+        private final int lo1, hi1, lo2, hi2, k, cutoff;
+
+        LongMergeTask(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int k, int cutoff) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.k = k;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1, n2 = hi2 - lo2;
+            if (n1 + n2 <= Math.max(cutoff, 2)) {
+                merge(src, lo1, hi1, lo2, hi2, dst, k);
+                return;
+            }
+            int mid1, mid2;
+            if (n1 >= n2) {
+                mid1 = (lo1 + hi1) >>> 1;
+                mid2 = lowerBound(src, lo2, hi2, src[mid1]);
+            } else {
+                mid2 = (lo2 + hi2) >>> 1;
+                mid1 = upperBound(src, lo1, hi1, src[mid2]);
+            }
+            int k2 = k + (mid1 - lo1) + (mid2 - lo2);
+            invokeAll(new LongMergeTask(src, lo1, mid1, lo2, mid2, dst, k, cutoff),
+                    new LongMergeTask(src, mid1, hi1, mid2, hi2, dst, k2, cutoff));
+        }
+    }
+
+    private static void merge(int[] src, int i, int iEnd, int j, int jEnd, int[] dst, int k) {
+        while (i < iEnd && j < jEnd)
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+        System.arraycopy(src, i, dst, k, iEnd - i);
+        System.arraycopy(src, j, dst, k + iEnd - i, jEnd - j);
+    }
+
+    private static void merge(long[] src, int i, int iEnd, int j, int jEnd, long[] dst, int k) {
+        while (i < iEnd && j < jEnd)
+            dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+        System.arraycopy(src, i, dst, k, iEnd - i);
+        System.arraycopy(src, j, dst, k + iEnd - i, jEnd - j);
+    }
+
+    /**
+     * @return first index in a[lo, hi) whose number is not less than key
+     */
+    private static int lowerBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return first index in a[lo, hi) whose number is greater than key
+     */
+    private static int upperBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static int lowerBound(long[] a, int lo, int hi, long key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static int upperBound(long[] a, int lo, int hi, long key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
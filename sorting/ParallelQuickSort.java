@@ -0,0 +1,244 @@
+package sorting;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join quick sort over int and long arrays.
+ * Pivots on the median of the first, middle and last numbers and partitions Hoare-style, so sorted input and
+ * runs of equal numbers still split near the middle; the two sides are then sorted in parallel down to a
+ * sequential cutoff. As in {@link IntroSort}, a range still unfinished after 2 log2(n) levels of partitioning,
+ * forked or sequential, is handed to {@link HeapSort}, so inputs built to defeat the median of three cost
+ * O(n log n) rather than O(n^2) and can't fork tasks without bound.
+ */
+public final class ParallelQuickSort {
+    /** Ranges at or below this many numbers are sorted on the current thread */
+    public static final int DEFAULT_CUTOFF = 1 << 13;
+    /** Ranges at or below this many numbers are finished with insertion sort or a sorting network */
+    private static final int INSERTION_CUTOFF = 16;
+
+    private ParallelQuickSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Sorts on a dedicated pool which is shut down afterwards
+     * @param a numbers to be sorted
+     * @param parallelism number of worker threads
+     * @param cutoff range size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void sort(long[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param pool pool to run the tasks in
+     * @param cutoff range size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        pool.invoke(new IntSortTask(a, from, to - 1, IntroSort.depthLimit(to - from), cutoff));
+    }
+
+    public static void sort(long[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        pool.invoke(new LongSortTask(a, from, to - 1, IntroSort.depthLimit(to - from), cutoff));
+    }
+
+    private static final class IntSortTask extends RecursiveAction {
+        private final int[] a;
+        private final int low, high, depth, cutoff;
+
+        IntSortTask(int[] a, int low, int high, int depth, int cutoff) {
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.depth = depth;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low < cutoff) {
+                quickSort(a, low, high, depth);
+                return;
+            }
+            if (depth == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+            long bounds = partition(a, low, high);
+            int j = (int) (bounds >>> 32), i = (int) bounds;
+            invokeAll(new IntSortTask(a, low, j, depth - 1, cutoff), new IntSortTask(a, i, high, depth - 1, cutoff));
+        }
+    }
+
+    private static final class LongSortTask extends RecursiveAction {
+        private final long[] a;
+        private final int low, high, depth, cutoff;
+
+        LongSortTask(long[] a, int low, int high, int depth, int cutoff) {
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.depth = depth;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low < cutoff) {
+                quickSort(a, low, high, depth);
+                return;
+            }
+            if (depth == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+            long bounds = partition(a, low, high);
+            int j = (int) (bounds >>> 32), i = (int) bounds;
+            invokeAll(new LongSortTask(a, low, j, depth - 1, cutoff), new LongSortTask(a, i, high, depth - 1, cutoff));
+        }
+    }
+
+    /**
+     * Sequential quick sort; recurses into the smaller side and loops on the larger so the stack stays O(log n)
+     * @param a numbers to be sorted
+     * @param low start index
+     * @param high end index, inclusive
+     * @param depth partitioning levels left before switching to heap sort
+     */
+    private static void quickSort(int[] a, int low, int high, int depth) {
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+            long bounds = partition(a, low, high);
+            int j = (int) (bounds >>> 32), i = (int) bounds;
+            if (j - low < high - i) {
+                quickSort(a, low, j, depth);
+                low = i;
+            } else {
+                quickSort(a, i, high, depth);
+                high = j;
+            }
+        }
+        SortingNetwork.leaf(a, low, high + 1);
+    }
+
+    private static void quickSort(long[] a, int low, int high, int depth) {
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                HeapSort.sort(a, low, high + 1);
+                return;
+            }
+            long bounds = partition(a, low, high);
+            int j = (int) (bounds >>> 32), i = (int) bounds;
+            if (j - low < high - i) {
+                quickSort(a, low, j, depth);
+                low = i;
+            } else {
+                quickSort(a, i, high, depth);
+                high = j;
+            }
+        }
+        SortingNetwork.leaf(a, low, high + 1);
+    }
+
+    /**
+     * Hoare partition around the median of a[low], a[mid] and a[high]
+     * @param a numbers to partition
+     * @param low start index
+     * @param high end index, inclusive
+     * @return end of the left side (inclusive) in the upper 32 bits, start of the right side in the lower 32 bits
+     */
+    private static long partition(int[] a, int low, int high) {
+        int mid = (low + high) >>> 1;
+        if (a[mid] < a[low])
+            swap(a, mid, low);
+        if (a[high] < a[low])
+            swap(a, high, low);
+        if (a[high] < a[mid])
+            swap(a, high, mid);
+        int pivot = a[mid];
+
+        int i = low, j = high;
+        while (i <= j) {
+            while (a[i] < pivot)
+                i++;
+            while (a[j] > pivot)
+                j--;
+            if (i <= j) {
+                swap(a, i, j);
+                i++;
+                j--;
+            }
+        }
+        return ((long) j << 32) | (i & 0xFFFFFFFFL);
+    }
+
+    private static long partition(long[] a, int low, int high) {
+        int mid = (low + high) >>> 1;
+        if (a[mid] < a[low])
+            swap(a, mid, low);
+        if (a[high] < a[low])
+            swap(a, high, low);
+        if (a[high] < a[mid])
+            swap(a, high, mid);
+        long pivot = a[mid];
+
+        int i = low, j = high;
+        while (i <= j) {
+            while (a[i] < pivot)
+                i++;
+            while (a[j] > pivot)
+                j--;
+            if (i <= j) {
+                swap(a, i, j);
+                i++;
+                j--;
+            }
+        }
+        return ((long) j << 32) | (i & 0xFFFFFFFFL);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+}
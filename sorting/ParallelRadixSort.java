@@ -0,0 +1,324 @@
+package sorting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join most significant digit radix sort over int and long arrays, a byte at a time.
+ * A range is cut into one chunk per worker; every chunk counts its own bytes into a private histogram, the
+ * histograms are prefix summed bucket by bucket so each chunk knows where its share of every bucket starts,
+ * and the chunks then scatter into a scratch array side by side without sharing a counter. The buckets are
+ * independent after that and are sorted in parallel on the next byte, moving back and forth between the
+ * array and the scratch. Buckets at or below the cutoff fit in cache and are finished on one thread with the
+ * sequential in-place MSD sort.
+ * <p>
+ * Each byte costs one read and one write of the numbers shared across every core, so large arrays are
+ * limited by memory bandwidth rather than by one core. It allocates a scratch array the size of the range and
+ * is not stable.
+ */
+public final class ParallelRadixSort {
+    /** Buckets at or below this many numbers are sorted on the current thread */
+    public static final int DEFAULT_CUTOFF = 1 << 16;
+
+    private ParallelRadixSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length, ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     * Sorts on a dedicated pool which is shut down afterwards
+     * @param a numbers to be sorted
+     * @param parallelism number of worker threads
+     * @param cutoff bucket size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void sort(long[] a, int parallelism, int cutoff) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            sort(a, 0, a.length, pool, cutoff);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param pool pool to run the tasks in
+     * @param cutoff bucket size at or below which work is done sequentially
+     */
+    public static void sort(int[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        int n = to - from;
+        if (n <= cutoff) {
+            RadixSort.sortMsd(a, from, to, null);
+            return;
+        }
+        SortStats.allocate(4L * n);
+        pool.invoke(new IntSortTask(a, new int[n], from, 0, n, Integer.SIZE / 8 - 1, true, cutoff,
+                pool.getParallelism()));
+    }
+
+    public static void sort(long[] a, int from, int to, ForkJoinPool pool, int cutoff) {
+        if (cutoff < 1)
+            throw new IllegalArgumentException("Cutoff must be positive: " + cutoff);
+        int n = to - from;
+        if (n <= cutoff) {
+            RadixSort.sortMsd(a, from, to);
+            return;
+        }
+        pool.invoke(new LongSortTask(a, new long[n], from, 0, n, Long.SIZE / 8 - 1, true, cutoff,
+                pool.getParallelism()));
+    }
+
+    /**
+     * Sorts one bucket, numbers [lo, hi) of the range, whose numbers all share the bytes above level.
+     * The bucket is at a[from + lo, from + hi) or at buf[lo, hi), depending on inA.
+     */
+    private static final class IntSortTask extends RecursiveAction {
+        private final int[] a, buf;
+        private final int from, lo, hi, cutoff, parallelism;
+        private int level;
+        private final boolean inA;
+
+        IntSortTask(int[] a, int[] buf, int from, int lo, int hi, int level, boolean inA, int cutoff,
+                int parallelism) {
+            this.a = a;
+            this.buf = buf;
+            this.from = from;
+            this.lo = lo;
+            this.hi = hi;
+            this.level = level;
+            this.inA = inA;
+            this.cutoff = cutoff;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            int[] src = inA ? a : buf, dst = inA ? buf : a;
+            int srcOff = inA ? from : 0, dstOff = inA ? 0 : from;
+
+            for (; level >= 0 && n > cutoff; level--) {
+                int shift = level * 8;
+                int chunks = Math.max(1, Math.min(parallelism, n / cutoff));
+                int[][] count = new int[chunks][256];
+                List<RecursiveAction> tasks = new ArrayList<>(chunks);
+                for (int c = 0; c < chunks; c++)
+                    tasks.add(new IntChunkTask(src, srcOff + chunkStart(c, chunks), srcOff + chunkStart(c + 1, chunks),
+                            shift, count[c], null, 0));
+                invokeAll(tasks);
+                SortStats.read(n);
+
+                // Every number shares this byte; move on to the next one without scattering
+                int[] start = prefixSum(count, lo);
+                if (isSingleBucket(start, n))
+                    continue;
+
+                tasks.clear();
+                for (int c = 0; c < chunks; c++)
+                    tasks.add(new IntChunkTask(src, srcOff + chunkStart(c, chunks), srcOff + chunkStart(c + 1, chunks),
+                            shift, count[c], dst, dstOff));
+                invokeAll(tasks);
+                SortStats.move(n);
+
+                tasks.clear();
+                for (int b = 0; b < 256; b++) {
+                    if (start[b + 1] > start[b])
+                        tasks.add(new IntSortTask(a, buf, from, start[b], start[b + 1], level - 1, !inA, cutoff,
+                                parallelism));
+                }
+                invokeAll(tasks);
+                return;
+            }
+
+            if (!inA) {
+                System.arraycopy(buf, lo, a, from + lo, n);
+                SortStats.move(n);
+            }
+            if (level >= 0 && n > 1)
+                RadixSort.sortMsd(a, from + lo, from + hi, level);
+        }
+
+        private int chunkStart(int c, int chunks) {
+            return lo + (int) ((long) (hi - lo) * c / chunks);
+        }
+    }
+
+    /**
+     * Counts the bytes of src[lo, hi) into count or, given a dst, scatters src[lo, hi) into dst at the
+     * positions count holds for each bucket
+     */
+    private static final class IntChunkTask extends RecursiveAction {
+        private final int[] src, count, dst;
+        private final int lo, hi, shift, dstOff;
+
+        IntChunkTask(int[] src, int lo, int hi, int shift, int[] count, int[] dst, int dstOff) {
+            this.src = src;
+            this.lo = lo;
+            this.hi = hi;
+            this.shift = shift;
+            this.count = count;
+            this.dst = dst;
+            this.dstOff = dstOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (dst == null) {
+                for (int i = lo; i < hi; i++)
+                    count[((src[i] ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++;
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    int v = src[i];
+                    dst[dstOff + count[((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF]++] = v;
+                }
+            }
+        }
+    }
+
+    private static final class LongSortTask extends RecursiveAction {
+        private final long[] a, buf;
+        private final int from, lo, hi, cutoff, parallelism;
+        private int level;
+        private final boolean inA;
+
+        LongSortTask(long[] a, long[] buf, int from, int lo, int hi, int level, boolean inA, int cutoff,
+                int parallelism) {
+            this.a = a;
+            this.buf = buf;
+            this.from = from;
+            this.lo = lo;
+            this.hi = hi;
+            this.level = level;
+            this.inA = inA;
+            this.cutoff = cutoff;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            long[] src = inA ? a : buf, dst = inA ? buf : a;
+            int srcOff = inA ? from : 0, dstOff = inA ? 0 : from;
+
+            for (; level >= 0 && n > cutoff; level--) {
+                int shift = level * 8;
+                int chunks = Math.max(1, Math.min(parallelism, n / cutoff));
+                int[][] count = new int[chunks][256];
+                List<RecursiveAction> tasks = new ArrayList<>(chunks);
+                for (int c = 0; c < chunks; c++)
+                    tasks.add(new LongChunkTask(src, srcOff + chunkStart(c, chunks), srcOff + chunkStart(c + 1, chunks),
+                            shift, count[c], null, 0));
+                invokeAll(tasks);
+
+                int[] start = prefixSum(count, lo);
+                if (isSingleBucket(start, n))
+                    continue;
+
+                tasks.clear();
+                for (int c = 0; c < chunks; c++)
+                    tasks.add(new LongChunkTask(src, srcOff + chunkStart(c, chunks), srcOff + chunkStart(c + 1, chunks),
+                            shift, count[c], dst, dstOff));
+                invokeAll(tasks);
+
+                tasks.clear();
+                for (int b = 0; b < 256; b++) {
+                    if (start[b + 1] > start[b])
+                        tasks.add(new LongSortTask(a, buf, from, start[b], start[b + 1], level - 1, !inA, cutoff,
+                                parallelism));
+                }
+                invokeAll(tasks);
+                return;
+            }
+
+            if (!inA)
+                System.arraycopy(buf, lo, a, from + lo, n);
+            if (level >= 0 && n > 1)
+                RadixSort.sortMsd(a, from + lo, from + hi, level);
+        }
+
+        private int chunkStart(int c, int chunks) {
+            return lo + (int) ((long) (hi - lo) * c / chunks);
+        }
+    }
+
+    private static final class LongChunkTask extends RecursiveAction {
+        private final long[] src, dst;
+        private final int[] count;
+        private final int lo, hi, shift, dstOff;
+
+        LongChunkTask(long[] src, int lo, int hi, int shift, int[] count, long[] dst, int dstOff) {
+            this.src = src;
+            this.lo = lo;
+            this.hi = hi;
+            this.shift = shift;
+            this.count = count;
+            this.dst = dst;
+            this.dstOff = dstOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (dst == null) {
+                for (int i = lo; i < hi; i++)
+                    count[(int) ((src[i] ^ Long.MIN_VALUE) >>> shift & 0xFF)]++;
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    long v = src[i];
+                    dst[dstOff + count[(int) ((v ^ Long.MIN_VALUE) >>> shift & 0xFF)]++] = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns each chunk's bucket counts into the position its share of that bucket starts at. Buckets are laid
+     * out in order and, within a bucket, chunks in order.
+     * @param count bucket counts per chunk, overwritten with start positions
+     * @param lo position of the first bucket
+     * @return start of every bucket, plus the end of the last
+     */
+    private static int[] prefixSum(int[][] count, int lo) {
+        int[] start = new int[257];
+        int pos = lo;
+        for (int b = 0; b < 256; b++) {
+            start[b] = pos;
+            for (int[] chunk : count) {
+                int c = chunk[b];
+                chunk[b] = pos;
+                pos += c;
+            }
+        }
+        start[256] = pos;
+        return start;
+    }
+
+    private static boolean isSingleBucket(int[] start, int n) {
+        for (int b = 0; b < 256; b++) {
+            if (start[b + 1] - start[b] == n)
+                return true;
+        }
+        return false;
+    }
+}
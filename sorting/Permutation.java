@@ -0,0 +1,123 @@
+package sorting;
+
+import java.util.BitSet;
+
+/**
+ * Reorders arrays by a permutation such as an argsort returns, so one sorted key column can reorder any
+ * number of parallel columns without building row objects.
+ * A permutation p moves the element at index p[i] to index i. It is applied in place by following its
+ * cycles, so each column is read and written once per element and nothing the size of a column is allocated.
+ */
+public final class Permutation {
+
+    private Permutation() {
+    }
+
+    /**
+     * @return the permutation that leaves n elements where they are
+     */
+    public static int[] identity(int n) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++)
+            perm[i] = i;
+        return perm;
+    }
+
+    /**
+     * Reorders every column so that column[i] becomes the old column[perm[i]]
+     * @param perm a permutation of 0 to n - 1
+     * @param columns arrays of length n, reordered in place
+     * @throws IllegalArgumentException if perm isn't a permutation or a column is the wrong length
+     */
+    public static void apply(int[] perm, int[]... columns) {
+        BitSet done = check(perm);
+        for (int[] column : columns)
+            checkLength(perm, column.length);
+        for (int start = done.nextClearBit(0); start < perm.length; start = done.nextClearBit(start + 1)) {
+            for (int[] column : columns) {
+                int first = column[start];
+                int j = start;
+                for (int k = perm[j]; k != start; j = k, k = perm[k])
+                    column[j] = column[k];
+                column[j] = first;
+            }
+            markCycle(perm, start, done);
+        }
+    }
+
+    public static void apply(int[] perm, long[]... columns) {
+        BitSet done = check(perm);
+        for (long[] column : columns)
+            checkLength(perm, column.length);
+        for (int start = done.nextClearBit(0); start < perm.length; start = done.nextClearBit(start + 1)) {
+            for (long[] column : columns) {
+                long first = column[start];
+                int j = start;
+                for (int k = perm[j]; k != start; j = k, k = perm[k])
+                    column[j] = column[k];
+                column[j] = first;
+            }
+            markCycle(perm, start, done);
+        }
+    }
+
+    public static void apply(int[] perm, double[]... columns) {
+        BitSet done = check(perm);
+        for (double[] column : columns)
+            checkLength(perm, column.length);
+        for (int start = done.nextClearBit(0); start < perm.length; start = done.nextClearBit(start + 1)) {
+            for (double[] column : columns) {
+                double first = column[start];
+                int j = start;
+                for (int k = perm[j]; k != start; j = k, k = perm[k])
+                    column[j] = column[k];
+                column[j] = first;
+            }
+            markCycle(perm, start, done);
+        }
+    }
+
+    public static void apply(int[] perm, Object[]... columns) {
+        BitSet done = check(perm);
+        for (Object[] column : columns)
+            checkLength(perm, column.length);
+        for (int start = done.nextClearBit(0); start < perm.length; start = done.nextClearBit(start + 1)) {
+            for (Object[] column : columns) {
+                Object first = column[start];
+                int j = start;
+                for (int k = perm[j]; k != start; j = k, k = perm[k])
+                    column[j] = column[k];
+                column[j] = first;
+            }
+            markCycle(perm, start, done);
+        }
+    }
+
+    /**
+     * Makes sure every index appears exactly once, so following a cycle always gets back to its start
+     * @return an empty set sized for marking the cycles already applied
+     */
+    private static BitSet check(int[] perm) {
+        BitSet seen = new BitSet(perm.length);
+        for (int p : perm) {
+            if (p < 0 || p >= perm.length || seen.get(p))
+                throw new IllegalArgumentException("Not a permutation of 0 to " + (perm.length - 1) + ": " + p);
+            seen.set(p);
+        }
+        seen.clear();
+        return seen;
+    }
+
+    private static void checkLength(int[] perm, int length) {
+        if (length != perm.length)
+            throw new IllegalArgumentException("Column length " + length + " != permutation length " + perm.length);
+    }
+
+    private static void markCycle(int[] perm, int start, BitSet done) {
+        int j = start;
+        do {
+            done.set(j);
+            j = perm[j];
+        } while (j != start);
+    }
+}
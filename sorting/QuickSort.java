@@ -0,0 +1,92 @@
+package sorting;
+
+/**
+ * Quick sort over int arrays using a Lomuto partition on the last element.
+ * This is the textbook sort the visualizer steps through as {@link Algorithm#LOMUTO_QUICK}: sorted, reversed and
+ * repetitive input make it O(n^2), though recursing only into the smaller side keeps the stack O(log n).
+ * {@link IntroSort} is the quick sort to use on real data, and {@link Algorithm#QUICK} runs it.
+ */
+public final class QuickSort {
+
+    private QuickSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every partition; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        quickSort(a, from, to - 1, observer);
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    /**
+     * Partitions around the last number, then recurses into the smaller side and loops on the larger, so the
+     * stack stays O(log n) even when the partitions are as lopsided as they get
+     * @param a numbers to be sorted
+     * @param low start index
+     * @param high end index, inclusive
+     * @param observer notified after every partition; may be null
+     */
+    private static void quickSort(int[] a, int low, int high, SortObserver observer) {
+        SortStats.enter();
+        while (low < high) {
+            int p = partition(a, low, high);
+            if (observer != null) {
+                observer.write(low, high + 1);
+                if (p < high)
+                    observer.compare(p, high);
+                observer.step();
+            }
+
+            if (p - low < high - p) {
+                quickSort(a, low, p - 1, observer);
+                low = p + 1;
+            } else {
+                quickSort(a, p + 1, high, observer);
+                high = p - 1;
+            }
+        }
+        SortStats.exit();
+    }
+
+    /**
+     * Pivots on the last number, moving everything less than or equal to it in front of it
+     * @param a numbers to sort
+     * @param low start of range
+     * @param high end of range, inclusive; holds the pivot
+     * @return final index of the pivot
+     */
+    static int partition(int[] a, int low, int high) {
+        int pivot = a[high];
+        int i = low;
+        for (int j = low; j < high; j++) {
+            if (a[j] <= pivot) {
+                int temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+                i++;
+                SortStats.swap();
+            }
+        }
+        a[high] = a[i];
+        a[i] = pivot;
+
+        if (SortStats.ENABLED) {
+            SortStats.compare(high - low);
+            SortStats.read(high - low + 2);
+            SortStats.write(2);
+        }
+        return i;
+    }
+}
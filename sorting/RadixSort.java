@@ -0,0 +1,423 @@
+package sorting;
+
+import java.util.Arrays;
+
+/**
+ * Radix sorts over the full range of signed int and long keys.
+ * Keys are compared as unsigned after flipping the sign bit, so negatives sort in front of positives.
+ * <p>
+ * The least significant digit sort counts every digit position in one read of the input, then skips any
+ * pass where all keys land in the same bucket; one scratch array is allocated and the two arrays swap roles
+ * every pass. Digits can be 1 to 16 bits; 8 keeps the bucket counts in L1, 11 or 16 trade larger counts for
+ * fewer passes.
+ * <p>
+ * The most significant digit sort works a byte at a time in place (American flag sort), recursing into each
+ * bucket and finishing small buckets with insertion sort, or a {@link SortingNetwork} under
+ * {@code -Dsorting.leaf=network}. It needs no scratch array but is not stable.
+ */
+public final class RadixSort {
+    /** Digit size used when none is given */
+    public static final int DEFAULT_BITS = 8;
+    /** Buckets at or below this many numbers are finished with insertion sort or a sorting network in the MSD sort */
+    private static final int MSD_INSERTION_CUTOFF = 64;
+
+    private RadixSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, DEFAULT_BITS, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length, DEFAULT_BITS);
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, DEFAULT_BITS, null);
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        sort(a, from, to, DEFAULT_BITS);
+    }
+
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        sort(a, from, to, DEFAULT_BITS, observer);
+    }
+
+    /**
+     * Least significant digit sort of a[from, to) in ascending order; equal numbers keep their order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param bits digit size, 1 to 16
+     * @param observer notified after every digit pass; may be null
+     */
+    public static void sort(int[] a, int from, int to, int bits, SortObserver observer) {
+        checkBits(bits);
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        int mask = (1 << bits) - 1;
+        int passes = (Integer.SIZE + bits - 1) / bits;
+
+        // Count every digit position in a single read of the input
+        int[][] bucketCount = new int[passes][1 << bits];
+        SortStats.allocate(4L * passes << bits);
+        SortStats.read(n);
+        for (int i = from; i < to; i++) {
+            int key = a[i] ^ Integer.MIN_VALUE;
+            for (int p = 0; p < passes; p++)
+                bucketCount[p][(key >>> (p * bits)) & mask]++;
+        }
+
+        int[] src = a, dst = null;
+        int srcOff = from, dstOff = 0;
+        for (int p = 0; p < passes; p++) {
+            int shift = p * bits;
+            int[] count = bucketCount[p];
+
+            // Every key has the same digit here, so the pass would only copy
+            if (count[((src[srcOff] ^ Integer.MIN_VALUE) >>> shift) & mask] == n)
+                continue;
+
+            if (dst == null) {
+                dst = new int[n];
+                SortStats.allocate(4L * n);
+            }
+
+            // Turn the counts into bucket start positions
+            int sum = dstOff;
+            for (int b = 0; b < count.length; b++) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+
+            for (int i = srcOff, end = srcOff + n; i < end; i++) {
+                int v = src[i];
+                dst[count[((v ^ Integer.MIN_VALUE) >>> shift) & mask]++] = v;
+            }
+            SortStats.move(n);
+
+            int[] t = src; src = dst; dst = t;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+
+            if (observer != null) {
+                if (src == a)
+                    observer.write(from, to);
+                observer.step();
+            }
+        }
+
+        if (src != a) {
+            System.arraycopy(src, srcOff, a, from, n);
+            SortStats.move(n);
+            if (observer != null)
+                observer.write(from, to);
+        }
+    }
+
+    /**
+     * Least significant digit sort of a[from, to) in ascending order; equal numbers keep their order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param bits digit size, 1 to 16
+     */
+    public static void sort(long[] a, int from, int to, int bits) {
+        checkBits(bits);
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        int mask = (1 << bits) - 1;
+        int passes = (Long.SIZE + bits - 1) / bits;
+
+        int[][] bucketCount = new int[passes][1 << bits];
+        for (int i = from; i < to; i++) {
+            long key = a[i] ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++)
+                bucketCount[p][(int) (key >>> (p * bits)) & mask]++;
+        }
+
+        long[] src = a, dst = null;
+        int srcOff = from, dstOff = 0;
+        for (int p = 0; p < passes; p++) {
+            int shift = p * bits;
+            int[] count = bucketCount[p];
+            if (count[(int) ((src[srcOff] ^ Long.MIN_VALUE) >>> shift) & mask] == n)
+                continue;
+
+            if (dst == null)
+                dst = new long[n];
+
+            int sum = dstOff;
+            for (int b = 0; b < count.length; b++) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+
+            for (int i = srcOff, end = srcOff + n; i < end; i++) {
+                long v = src[i];
+                dst[count[(int) ((v ^ Long.MIN_VALUE) >>> shift) & mask]++] = v;
+            }
+
+            long[] t = src; src = dst; dst = t;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+        }
+
+        if (src != a)
+            System.arraycopy(src, srcOff, a, from, n);
+    }
+
+    /**
+     * Finds the order that would sort a, leaving a as it is.
+     * Each number and its index are packed into one long, number in the high half, so a single long sort
+     * orders by number and keeps equal numbers in index order.
+     * @param a numbers to be ordered
+     * @return indices into a such that a[perm[0]] &lt;= a[perm[1]] &lt;= ...; equal numbers keep their order
+     */
+    public static int[] argsort(int[] a) {
+        int n = a.length;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++)
+            packed[i] = (long) a[i] << 32 | i;
+        sort(packed, 0, n, DEFAULT_BITS);
+
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++)
+            perm[i] = (int) packed[i];
+        return perm;
+    }
+
+    public static int[] argsort(long[] a) {
+        long[] keys = a.clone();
+        int[] perm = Permutation.identity(a.length);
+        sort(keys, perm, 0, keys.length);
+        return perm;
+    }
+
+    /**
+     * Least significant digit sort of keys[from, to) in ascending order, moving index along with them;
+     * equal keys keep their order
+     * @param keys keys to be sorted
+     * @param index values carried with the keys, typically original positions
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     */
+    static void sort(long[] keys, int[] index, int from, int to) {
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        int bits = DEFAULT_BITS, mask = (1 << bits) - 1;
+        int passes = Long.SIZE / bits;
+
+        int[][] bucketCount = new int[passes][1 << bits];
+        for (int i = from; i < to; i++) {
+            long key = keys[i] ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++)
+                bucketCount[p][(int) (key >>> (p * bits)) & mask]++;
+        }
+
+        long[] src = keys, dst = null;
+        int[] srcIndex = index, dstIndex = null;
+        int srcOff = from, dstOff = 0;
+        for (int p = 0; p < passes; p++) {
+            int shift = p * bits;
+            int[] count = bucketCount[p];
+            if (count[(int) ((src[srcOff] ^ Long.MIN_VALUE) >>> shift) & mask] == n)
+                continue;
+
+            if (dst == null) {
+                dst = new long[n];
+                dstIndex = new int[n];
+            }
+
+            int sum = dstOff;
+            for (int b = 0; b < count.length; b++) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+
+            for (int i = srcOff, end = srcOff + n; i < end; i++) {
+                long v = src[i];
+                int d = count[(int) ((v ^ Long.MIN_VALUE) >>> shift) & mask]++;
+                dst[d] = v;
+                dstIndex[d] = srcIndex[i];
+            }
+
+            long[] t = src; src = dst; dst = t;
+            int[] ti = srcIndex; srcIndex = dstIndex; dstIndex = ti;
+            int o = srcOff; srcOff = dstOff; dstOff = o;
+        }
+
+        if (src != keys) {
+            System.arraycopy(src, srcOff, keys, from, n);
+            System.arraycopy(srcIndex, srcOff, index, from, n);
+        }
+    }
+
+    public static void sortMsd(int[] a) {
+        sortMsd(a, 0, a.length, null);
+    }
+
+    public static void sortMsd(long[] a) {
+        sortMsd(a, 0, a.length);
+    }
+
+    /**
+     * Most significant digit sort of a[from, to) in ascending order, in place
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every bucket is distributed; may be null
+     */
+    public static void sortMsd(int[] a, int from, int to, SortObserver observer) {
+        // One set of bucket counts per byte, reused by every bucket at that depth
+        int levels = Integer.SIZE / 8;
+        SortStats.allocate(4L * (levels * 257 + 256));
+        msd(a, from, to, levels - 1, new int[levels][257], new int[256], observer);
+    }
+
+    public static void sortMsd(long[] a, int from, int to) {
+        int levels = Long.SIZE / 8;
+        msd(a, from, to, levels - 1, new int[levels][257], new int[256]);
+    }
+
+    /**
+     * Most significant digit sort of a[from, to) whose numbers all share the bytes above level
+     * @param level most significant byte still to distribute on, 0 being the least significant
+     */
+    static void sortMsd(int[] a, int from, int to, int level) {
+        msd(a, from, to, level, new int[level + 1][257], new int[256], null);
+    }
+
+    static void sortMsd(long[] a, int from, int to, int level) {
+        msd(a, from, to, level, new int[level + 1][257], new int[256]);
+    }
+
+    /**
+     * Distributes a[lo, hi) by one byte, then recurses into each bucket on the next byte down
+     * @param a numbers to be sorted
+     * @param lo start index
+     * @param hi end index, exclusive
+     * @param level byte to distribute on, 0 being the least significant
+     * @param bounds bucket boundaries per level; bounds[level][b] is the start of bucket b
+     * @param next scratch for the next free slot in each bucket
+     * @param observer notified after every bucket is distributed; may be null
+     */
+    private static void msd(int[] a, int lo, int hi, int level, int[][] bounds, int[] next, SortObserver observer) {
+        if (hi - lo <= MSD_INSERTION_CUTOFF) {
+            SortingNetwork.leaf(a, lo, hi);
+            if (observer != null)
+                observer.write(lo, hi);
+            return;
+        }
+
+        int shift = level * 8;
+        int[] start = bounds[level];
+        Arrays.fill(start, 0);
+        for (int i = lo; i < hi; i++)
+            start[(((a[i] ^ Integer.MIN_VALUE) >>> shift) & 0xFF) + 1]++;
+        SortStats.read(hi - lo);
+
+        // Every key shares this byte; skip straight to the next one
+        if (start[(((a[lo] ^ Integer.MIN_VALUE) >>> shift) & 0xFF) + 1] == hi - lo) {
+            if (level > 0)
+                msd(a, lo, hi, level - 1, bounds, next, observer);
+            return;
+        }
+
+        start[0] = lo;
+        for (int b = 1; b <= 256; b++)
+            start[b] += start[b - 1];
+        System.arraycopy(start, 0, next, 0, 256);
+
+        // Cycle each misplaced number into the next free slot of its bucket
+        for (int b = 0; b < 256; b++) {
+            int end = start[b + 1];
+            while (next[b] < end) {
+                int v = a[next[b]];
+                int d = ((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+                while (d != b) {
+                    int t = a[next[d]];
+                    a[next[d]++] = v;
+                    v = t;
+                    d = ((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+                }
+                a[next[b]++] = v;
+            }
+        }
+        // Every number is read and written once by the cycles, including those already in their bucket
+        SortStats.move(hi - lo);
+
+        if (observer != null) {
+            observer.write(lo, hi);
+            observer.step();
+        }
+
+        if (level > 0) {
+            SortStats.enter();
+            for (int b = 0; b < 256; b++) {
+                if (start[b + 1] - start[b] > 1)
+                    msd(a, start[b], start[b + 1], level - 1, bounds, next, observer);
+            }
+            SortStats.exit();
+        }
+    }
+
+    private static void msd(long[] a, int lo, int hi, int level, int[][] bounds, int[] next) {
+        if (hi - lo <= MSD_INSERTION_CUTOFF) {
+            SortingNetwork.leaf(a, lo, hi);
+            return;
+        }
+
+        int shift = level * 8;
+        int[] start = bounds[level];
+        Arrays.fill(start, 0);
+        for (int i = lo; i < hi; i++)
+            start[(int) ((a[i] ^ Long.MIN_VALUE) >>> shift & 0xFF) + 1]++;
+
+        if (start[(int) ((a[lo] ^ Long.MIN_VALUE) >>> shift & 0xFF) + 1] == hi - lo) {
+            if (level > 0)
+                msd(a, lo, hi, level - 1, bounds, next);
+            return;
+        }
+
+        start[0] = lo;
+        for (int b = 1; b <= 256; b++)
+            start[b] += start[b - 1];
+        System.arraycopy(start, 0, next, 0, 256);
+
+        for (int b = 0; b < 256; b++) {
+            int end = start[b + 1];
+            while (next[b] < end) {
+                long v = a[next[b]];
+                int d = (int) ((v ^ Long.MIN_VALUE) >>> shift & 0xFF);
+                while (d != b) {
+                    long t = a[next[d]];
+                    a[next[d]++] = v;
+                    v = t;
+                    d = (int) ((v ^ Long.MIN_VALUE) >>> shift & 0xFF);
+                }
+                a[next[b]++] = v;
+            }
+        }
+
+        if (level > 0) {
+            for (int b = 0; b < 256; b++) {
+                if (start[b + 1] - start[b] > 1)
+                    msd(a, start[b], start[b + 1], level - 1, bounds, next);
+            }
+        }
+    }
+
+    private static void checkBits(int bits) {
+        if (bits < 1 || bits > 16)
+            throw new IllegalArgumentException("Digit size must be between 1 and 16 bits: " + bits);
+    }
+}
@@ -0,0 +1,216 @@
+package sorting;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Sorts fixed-width binary records, such as the 100 byte rows with 10 byte keys of the sort benchmark, by a key
+ * at a fixed offset in each record. Keys compare as unsigned bytes, first byte most significant, like
+ * {@code memcmp}.
+ * <p>
+ * The sort works on record numbers rather than records: a most significant byte radix sort distributes the
+ * numbers by one key byte at a time through a scratch array, so it is stable, and recurses into each bucket on
+ * the next byte; buckets of 32 or fewer records are finished with insertion sort on the rest of their keys.
+ * {@link #order} stops there and returns the record numbers, leaving the data as it is. {@link #sort} then
+ * moves every record into place by following the permutation's cycles, so only one record is held aside
+ * and no second copy of the data is needed.
+ * <p>
+ * Records the caller already holds one per array can use {@link #keyComparator} with any algorithm that takes a
+ * comparator, e.g. {@code Algorithm.TIM.sort(rows, RecordSort.keyComparator(0, 10))}; TIM and MERGE keep rows
+ * with equal keys in order, and the radix and parallel algorithms take no comparator (see {@link Algorithm}).
+ */
+public final class RecordSort {
+    /** Buckets at or below this many records are finished with insertion sort */
+    private static final int INSERTION_CUTOFF = 32;
+
+    private RecordSort() {
+    }
+
+    public static void sort(byte[] data, int recordSize, int keyOffset, int keyLength) {
+        sort(ByteBuffer.wrap(data), recordSize, keyOffset, keyLength);
+    }
+
+    /**
+     * Sorts the records between data's position and limit by key, in place; records with equal keys keep their order
+     * @param data records laid end to end; heap or direct; position and limit are left as they are
+     * @param recordSize bytes per record
+     * @param keyOffset position of the key within a record
+     * @param keyLength bytes of key
+     * @throws IllegalArgumentException if the key doesn't fit in a record or data isn't a whole number of records
+     */
+    public static void sort(ByteBuffer data, int recordSize, int keyOffset, int keyLength) {
+        int[] order = order(data, recordSize, keyOffset, keyLength);
+        int base = data.position();
+
+        // Walk each cycle of the permutation backwards from its start, pulling every record in from where it is
+        byte[] held = new byte[recordSize];
+        byte[] moving = new byte[recordSize];
+        ByteBuffer view = data.duplicate();
+        BitSet done = new BitSet(order.length);
+        for (int start = done.nextClearBit(0); start < order.length; start = done.nextClearBit(start + 1)) {
+            done.set(start);
+            if (order[start] == start)
+                continue;
+            read(view, base, start, held);
+            int j = start;
+            for (int k = order[j]; k != start; j = k, k = order[k]) {
+                read(view, base, k, moving);
+                write(view, base, j, moving);
+                done.set(k);
+            }
+            write(view, base, j, held);
+        }
+    }
+
+    /**
+     * Finds the order of the records between data's position and limit by key, leaving data as it is
+     * @param data records laid end to end; heap or direct
+     * @param recordSize bytes per record
+     * @param keyOffset position of the key within a record
+     * @param keyLength bytes of key
+     * @return record numbers, counted from data's position, in ascending key order; equal keys keep their order
+     * @throws IllegalArgumentException if the key doesn't fit in a record or data isn't a whole number of records
+     */
+    public static int[] order(ByteBuffer data, int recordSize, int keyOffset, int keyLength) {
+        if (recordSize < 1 || keyOffset < 0 || keyLength < 0 || keyOffset + keyLength > recordSize)
+            throw new IllegalArgumentException("Key [" + keyOffset + ", " + (keyOffset + keyLength)
+                    + ") doesn't fit in a " + recordSize + " byte record");
+        if (data.remaining() % recordSize != 0)
+            throw new IllegalArgumentException(data.remaining() + " bytes is not a whole number of "
+                    + recordSize + " byte records");
+
+        int n = data.remaining() / recordSize;
+        int[] order = Permutation.identity(n);
+        if (n > 1 && keyLength > 0) {
+            Keys keys = new Keys(data, recordSize, keyOffset, keyLength);
+            msd(keys, order, new int[n], 0, n, 0, new int[keyLength][257]);
+        }
+        return order;
+    }
+
+    /**
+     * Orders records held one per array by the key at keyOffset, compared as unsigned bytes
+     * @param keyOffset position of the key within a record
+     * @param keyLength bytes of key
+     */
+    public static Comparator<byte[]> keyComparator(int keyOffset, int keyLength) {
+        return (a, b) -> {
+            for (int i = keyOffset, end = keyOffset + keyLength; i < end; i++) {
+                int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+                if (c != 0)
+                    return c;
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Distributes the record numbers order[lo, hi) by key byte depth, then recurses into each bucket on the
+     * next byte
+     * @param keys the records' keys
+     * @param order record numbers being sorted
+     * @param scratch where the numbers are distributed before being copied back
+     * @param lo start index
+     * @param hi end index, exclusive
+     * @param depth key byte to distribute on, 0 being the first
+     * @param bounds bucket boundaries per depth; bounds[depth][b] is the start of bucket b
+     */
+    private static void msd(Keys keys, int[] order, int[] scratch, int lo, int hi, int depth, int[][] bounds) {
+        while (true) {
+            if (hi - lo <= INSERTION_CUTOFF) {
+                insertionSort(keys, order, lo, hi, depth);
+                return;
+            }
+            if (depth == keys.length)
+                return;
+
+            int[] start = bounds[depth];
+            Arrays.fill(start, 0);
+            for (int i = lo; i < hi; i++)
+                start[keys.byteAt(order[i], depth) + 1]++;
+
+            // Every key shares this byte; move straight on to the next one
+            if (start[keys.byteAt(order[lo], depth) + 1] == hi - lo) {
+                depth++;
+                continue;
+            }
+
+            start[0] = lo;
+            for (int b = 1; b <= 256; b++)
+                start[b] += start[b - 1];
+            for (int i = lo; i < hi; i++) {
+                int r = order[i];
+                scratch[start[keys.byteAt(r, depth)]++] = r;
+            }
+            System.arraycopy(scratch, lo, order, lo, hi - lo);
+
+            // Scattering moved each start up to the next bucket's, so bucket b now ends at start[b]
+            for (int b = 0, from = lo; b < 256; b++) {
+                int to = start[b];
+                if (to - from > 1)
+                    msd(keys, order, scratch, from, to, depth + 1, bounds);
+                from = to;
+            }
+            return;
+        }
+    }
+
+    /**
+     * Stable insertion sort of order[lo, hi) by the key bytes from depth on
+     */
+    private static void insertionSort(Keys keys, int[] order, int lo, int hi, int depth) {
+        for (int i = lo + 1; i < hi; i++) {
+            int cur = order[i];
+            int j = i;
+            while (j > lo && keys.compare(order[j - 1], cur, depth) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = cur;
+        }
+    }
+
+    private static void read(ByteBuffer view, int base, int record, byte[] into) {
+        view.position(base + record * into.length);
+        view.get(into);
+    }
+
+    private static void write(ByteBuffer view, int base, int record, byte[] from) {
+        view.position(base + record * from.length);
+        view.put(from);
+    }
+
+    /**
+     * The keys of the records in a buffer, read in place
+     */
+    private static final class Keys {
+        final ByteBuffer data;
+        final int base, recordSize, length;
+
+        Keys(ByteBuffer data, int recordSize, int keyOffset, int keyLength) {
+            this.data = data;
+            this.base = data.position() + keyOffset;
+            this.recordSize = recordSize;
+            this.length = keyLength;
+        }
+
+        int byteAt(int record, int depth) {
+            return data.get(base + record * recordSize + depth) & 0xFF;
+        }
+
+        /**
+         * Compares two records' keys as unsigned bytes, starting at byte depth
+         */
+        int compare(int r1, int r2, int depth) {
+            int p1 = base + r1 * recordSize, p2 = base + r2 * recordSize;
+            for (int i = depth; i < length; i++) {
+                int c = (data.get(p1 + i) & 0xFF) - (data.get(p2 + i) & 0xFF);
+                if (c != 0)
+                    return c;
+            }
+            return 0;
+        }
+    }
+}
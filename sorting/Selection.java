@@ -0,0 +1,378 @@
+package sorting;
+
+/**
+ * Selection and partial sorting, for when only the k smallest or largest numbers, or the number at one rank,
+ * are wanted rather than a full sort.
+ * <p>
+ * {@link #select(int[], int, int, int)} is an introselect: it partitions three ways around a median of three
+ * like {@link IntroSort} but only follows the side holding the wanted rank, so it takes O(n) on average. A
+ * median or percentile of a huge array is one call. If partitioning goes 2 log2(n) levels deep it switches to
+ * a heap select, which bounds the worst case at O(n log n).
+ * <p>
+ * The partial sort and the top-k methods keep a bounded max-heap of the k best so far with the
+ * {@link HeapSort} heap code, in O(n log k). The double variants order by {@code <} and do not support NaN.
+ */
+public final class Selection {
+    /** Ranges at or below this many numbers are finished with insertion sort */
+    private static final int INSERTION_CUTOFF = 16;
+
+    private Selection() {
+    }
+
+    public static int select(int[] a, int k) {
+        return select(a, 0, a.length, k);
+    }
+
+    public static long select(long[] a, int k) {
+        return select(a, 0, a.length, k);
+    }
+
+    public static double select(double[] a, int k) {
+        return select(a, 0, a.length, k);
+    }
+
+    /**
+     * Reorders a[from, to) so that a[k] holds the number a full sort would put there, everything in front of it
+     * is less than or equal to it and everything after it is greater than or equal to it
+     * (C++'s nth_element). The median of a[from, to) is rank (from + to) / 2.
+     * @param a numbers to be partially ordered
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param k index of the wanted rank, from to to - 1
+     * @return the number at rank k
+     * @throws IllegalArgumentException if k is outside [from, to)
+     */
+    public static int select(int[] a, int from, int to, int k) {
+        checkRank(from, to, k);
+        int low = from, high = to - 1;
+        int depth = IntroSort.depthLimit(to - from);
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                heapSelect(a, low, high + 1, k);
+                return a[k];
+            }
+            int pivot = a[IntroSort.median(a, low, (low + high) >>> 1, high)];
+            long bounds = IntroSort.threeWayPartition(a, low, high, pivot);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            if (k < lt)
+                high = lt - 1;
+            else if (k > gt)
+                low = gt + 1;
+            else
+                return a[k];
+        }
+        InsertionSort.sort(a, low, high + 1);
+        return a[k];
+    }
+
+    public static long select(long[] a, int from, int to, int k) {
+        checkRank(from, to, k);
+        int low = from, high = to - 1;
+        int depth = IntroSort.depthLimit(to - from);
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                heapSelect(a, low, high + 1, k);
+                return a[k];
+            }
+            long pivot = a[IntroSort.median(a, low, (low + high) >>> 1, high)];
+            long bounds = IntroSort.threeWayPartition(a, low, high, pivot);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            if (k < lt)
+                high = lt - 1;
+            else if (k > gt)
+                low = gt + 1;
+            else
+                return a[k];
+        }
+        InsertionSort.sort(a, low, high + 1);
+        return a[k];
+    }
+
+    public static double select(double[] a, int from, int to, int k) {
+        checkRank(from, to, k);
+        int low = from, high = to - 1;
+        int depth = IntroSort.depthLimit(to - from);
+        while (high - low >= INSERTION_CUTOFF) {
+            if (depth-- == 0) {
+                heapSelect(a, low, high + 1, k);
+                return a[k];
+            }
+            double pivot = a[IntroSort.median(a, low, (low + high) >>> 1, high)];
+            long bounds = IntroSort.threeWayPartition(a, low, high, pivot);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            if (k < lt)
+                high = lt - 1;
+            else if (k > gt)
+                low = gt + 1;
+            else
+                return a[k];
+        }
+        InsertionSort.sort(a, low, high + 1);
+        return a[k];
+    }
+
+    /**
+     * Selects rank k of a[from, to) by keeping a max-heap of the k - from + 1 smallest numbers seen, whose root
+     * ends up as the wanted number and is then swapped into place
+     */
+    private static void heapSelect(int[] a, int from, int to, int k) {
+        int end = k + 1;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                int temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        int temp = a[k];
+        a[k] = a[from];
+        a[from] = temp;
+    }
+
+    private static void heapSelect(long[] a, int from, int to, int k) {
+        int end = k + 1;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                long temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        long temp = a[k];
+        a[k] = a[from];
+        a[from] = temp;
+    }
+
+    private static void heapSelect(double[] a, int from, int to, int k) {
+        int end = k + 1;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                double temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        double temp = a[k];
+        a[k] = a[from];
+        a[from] = temp;
+    }
+
+    public static void partialSort(int[] a, int k) {
+        partialSort(a, 0, a.length, k);
+    }
+
+    public static void partialSort(long[] a, int k) {
+        partialSort(a, 0, a.length, k);
+    }
+
+    public static void partialSort(double[] a, int k) {
+        partialSort(a, 0, a.length, k);
+    }
+
+    /**
+     * Moves the k smallest numbers of a[from, to) to a[from, from + k) in ascending order; the rest are left
+     * in no particular order (C++'s partial_sort)
+     * @param a numbers to be partially sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param k how many numbers to sort
+     * @throws IllegalArgumentException if k is negative or more than to - from
+     */
+    public static void partialSort(int[] a, int from, int to, int k) {
+        checkCount(to - from, k);
+        if (k == 0)
+            return;
+        int end = from + k;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                int temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        HeapSort.sort(a, from, end);
+    }
+
+    public static void partialSort(long[] a, int from, int to, int k) {
+        checkCount(to - from, k);
+        if (k == 0)
+            return;
+        int end = from + k;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                long temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        HeapSort.sort(a, from, end);
+    }
+
+    public static void partialSort(double[] a, int from, int to, int k) {
+        checkCount(to - from, k);
+        if (k == 0)
+            return;
+        int end = from + k;
+        HeapSort.heapify(a, from, end);
+        for (int i = end; i < to; i++) {
+            if (a[i] < a[from]) {
+                double temp = a[i];
+                a[i] = a[from];
+                a[from] = temp;
+                HeapSort.siftDown(a, from, from, end);
+            }
+        }
+        HeapSort.sort(a, from, end);
+    }
+
+    /**
+     * Finds the k smallest numbers, leaving a as it is
+     * @param a numbers to search
+     * @param k how many numbers to return
+     * @return the k smallest numbers in ascending order
+     * @throws IllegalArgumentException if k is negative or more than a.length
+     */
+    public static int[] smallest(int[] a, int k) {
+        checkCount(a.length, k);
+        int[] heap = new int[k];
+        System.arraycopy(a, 0, heap, 0, k);
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            if (a[i] < heap[0]) {
+                heap[0] = a[i];
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        return heap;
+    }
+
+    public static long[] smallest(long[] a, int k) {
+        checkCount(a.length, k);
+        long[] heap = new long[k];
+        System.arraycopy(a, 0, heap, 0, k);
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            if (a[i] < heap[0]) {
+                heap[0] = a[i];
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        return heap;
+    }
+
+    public static double[] smallest(double[] a, int k) {
+        checkCount(a.length, k);
+        double[] heap = new double[k];
+        System.arraycopy(a, 0, heap, 0, k);
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            if (a[i] < heap[0]) {
+                heap[0] = a[i];
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        return heap;
+    }
+
+    /**
+     * Finds the k largest numbers, leaving a as it is.
+     * The heap holds the numbers bitwise inverted, which reverses their order without overflowing, so the same
+     * max-heap keeps the largest.
+     * @param a numbers to search
+     * @param k how many numbers to return
+     * @return the k largest numbers in descending order
+     * @throws IllegalArgumentException if k is negative or more than a.length
+     */
+    public static int[] largest(int[] a, int k) {
+        checkCount(a.length, k);
+        int[] heap = new int[k];
+        for (int i = 0; i < k; i++)
+            heap[i] = ~a[i];
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            int v = ~a[i];
+            if (v < heap[0]) {
+                heap[0] = v;
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        for (int i = 0; i < k; i++)
+            heap[i] = ~heap[i];
+        return heap;
+    }
+
+    public static long[] largest(long[] a, int k) {
+        checkCount(a.length, k);
+        long[] heap = new long[k];
+        for (int i = 0; i < k; i++)
+            heap[i] = ~a[i];
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            long v = ~a[i];
+            if (v < heap[0]) {
+                heap[0] = v;
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        for (int i = 0; i < k; i++)
+            heap[i] = ~heap[i];
+        return heap;
+    }
+
+    // Doubles negate exactly, so they are held negated rather than inverted
+    public static double[] largest(double[] a, int k) {
+        checkCount(a.length, k);
+        double[] heap = new double[k];
+        for (int i = 0; i < k; i++)
+            heap[i] = -a[i];
+        if (k == 0)
+            return heap;
+        HeapSort.heapify(heap, 0, k);
+        for (int i = k; i < a.length; i++) {
+            double v = -a[i];
+            if (v < heap[0]) {
+                heap[0] = v;
+                HeapSort.siftDown(heap, 0, 0, k);
+            }
+        }
+        HeapSort.sort(heap, 0, k);
+        for (int i = 0; i < k; i++)
+            heap[i] = -heap[i];
+        return heap;
+    }
+
+    private static void checkRank(int from, int to, int k) {
+        if (k < from || k >= to)
+            throw new IllegalArgumentException("Rank " + k + " outside [" + from + ", " + to + ")");
+    }
+
+    private static void checkCount(int n, int k) {
+        if (k < 0 || k > n)
+            throw new IllegalArgumentException("Cannot take " + k + " of " + n + " numbers");
+    }
+}
@@ -0,0 +1,40 @@
+package sorting;
+
+/**
+ * Receives progress callbacks from the sorting engines so the caller can pause, draw or count between steps.
+ * Besides the steps, the engines report which positions of the array they write and compare as they go, so a
+ * caller mirroring the array only has to look at those. Writes into scratch arrays are not reported; the
+ * engines report the positions of the sorted array once the numbers land there. The parallel sorts report
+ * nothing.
+ */
+public interface SortObserver {
+
+    /**
+     * Called once per unit of progress; an outer loop pass, a merge, a partition, a radix pass
+     */
+    void step();
+
+    /**
+     * Called after a[i] has been written; a swap is reported as two writes
+     * @param i index written
+     */
+    default void write(int i) {
+    }
+
+    /**
+     * Called after a merge, partition or pass that may have rewritten any of a[from, to)
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     */
+    default void write(int from, int to) {
+    }
+
+    /**
+     * Called after a[i] and a[j] have been compared, or the numbers that were there; an engine that makes
+     * many comparisons per step reports the last one, or the one that decided the step
+     * @param i index of one number
+     * @param j index of the other
+     */
+    default void compare(int i, int j) {
+    }
+}
@@ -0,0 +1,176 @@
+package sorting;
+
+/**
+ * Operation counters for one sort: key comparisons, swaps, array reads and writes, recursion depth and bytes of
+ * scratch space allocated.
+ * <p>
+ * Counting is switched on for the whole JVM with {@code -Dsorting.stats=true}. Every counting call in the engines
+ * is guarded by {@link #ENABLED}, a static final, so when it is off the JIT folds the calls away and the
+ * algorithms run exactly as uninstrumented code. Only the int variants of the sequential algorithms are
+ * instrumented. Counters are per thread, so the parallel sorts only report the sequential leaves that happen to
+ * run on the calling thread; treat their numbers as a lower bound.
+ */
+public final class SortStats {
+    /** True if the engines count operations in this JVM */
+    public static final boolean ENABLED = Boolean.getBoolean("sorting.stats");
+    /** Column names matching {@link #toCsv()} */
+    public static final String CSV_HEADER = "comparisons,swaps,reads,writes,maxDepth,tempBytes";
+
+    private static final ThreadLocal<SortStats> CURRENT = new ThreadLocal<>();
+
+    private long comparisons, swaps, reads, writes, tempBytes;
+    private int depth, maxDepth;
+
+    /**
+     * Runs a sort on the calling thread, counting its operations
+     * @param sort the sort to run
+     * @return counters for the run; all zero if counting is not {@link #ENABLED}
+     */
+    public static SortStats measure(Runnable sort) {
+        SortStats stats = new SortStats();
+        stats.record(sort);
+        return stats;
+    }
+
+    /**
+     * Runs a sort on the calling thread, adding its operations to these counters. Other threads may read the
+     * counters while the sort runs, for a live display; they are not synchronized, so such reads can lag.
+     * @param sort the sort to run
+     */
+    public void record(Runnable sort) {
+        SortStats previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            sort.run();
+        } finally {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        }
+    }
+
+    static void compare(long n) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null)
+                s.comparisons += n;
+        }
+    }
+
+    /**
+     * Counts one exchange of two elements, along with its two reads and two writes
+     */
+    static void swap() {
+        swap(1);
+    }
+
+    static void swap(long n) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null) {
+                s.swaps += n;
+                s.reads += 2 * n;
+                s.writes += 2 * n;
+            }
+        }
+    }
+
+    static void read(long n) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null)
+                s.reads += n;
+        }
+    }
+
+    static void write(long n) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null)
+                s.writes += n;
+        }
+    }
+
+    /**
+     * Counts n elements copied from one place to another, one read and one write each
+     */
+    static void move(long n) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null) {
+                s.reads += n;
+                s.writes += n;
+            }
+        }
+    }
+
+    static void enter() {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null && ++s.depth > s.maxDepth)
+                s.maxDepth = s.depth;
+        }
+    }
+
+    static void exit() {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null)
+                s.depth--;
+        }
+    }
+
+    static void allocate(long bytes) {
+        if (ENABLED) {
+            SortStats s = CURRENT.get();
+            if (s != null)
+                s.tempBytes += bytes;
+        }
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getSwaps() {
+        return swaps;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return deepest recursion reached, counting the first call as 1
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getTempBytes() {
+        return tempBytes;
+    }
+
+    /**
+     * @return the counters as one CSV row in {@link #CSV_HEADER} order
+     */
+    public String toCsv() {
+        return comparisons + "," + swaps + "," + reads + "," + writes + "," + maxDepth + "," + tempBytes;
+    }
+
+    public String toJson() {
+        return "{\"comparisons\":" + comparisons + ",\"swaps\":" + swaps + ",\"reads\":" + reads
+                + ",\"writes\":" + writes + ",\"maxDepth\":" + maxDepth + ",\"tempBytes\":" + tempBytes + "}";
+    }
+
+    @Override
+    public String toString() {
+        return "Comparisons: " + comparisons + ", Swaps: " + swaps + ", Reads: " + reads + ", Writes: " + writes
+                + ", Depth: " + maxDepth + ", Temp: " + tempBytes + "B";
+    }
+}
@@ -0,0 +1,156 @@
+package sorting;
+
+/**
+ * Sorting networks for ranges of up to 64 numbers, usable as the small-range finish of the quick, merge and radix
+ * engines in place of insertion sort.
+ * <p>
+ * A network is a fixed list of compare-exchanges: each puts the smaller of two positions' numbers in the lower one
+ * and the larger in the upper one. The list depends only on the range's size, never on the numbers, so the loop
+ * has no data-dependent branch to mispredict; the int and long exchanges are a {@link Math#min}/{@link Math#max}
+ * pair, which the JIT compiles to conditional moves. Insertion sort does fewer comparisons on nearly sorted
+ * ranges, but on random ones nearly every comparison that stops a shift is a mispredicted branch.
+ * <p>
+ * The networks are Batcher's odd-even merge sort for the next power of two, with every exchange that touches a
+ * position past the end dropped: padding the range with numbers larger than any real one would leave those
+ * exchanges doing nothing, so the rest still sorts. They are built once, for every size from 2 to 64, when the
+ * class loads.
+ * <p>
+ * The engines finish small ranges with a network when run with {@code -Dsorting.leaf=network}, and with insertion
+ * sort otherwise. {@link #LEAF} is a static final, so the JIT folds the choice away. The double variants order by
+ * {@code <}, do not support NaN, and like any network are not stable, so -0.0 and 0.0 may swap places.
+ */
+public final class SortingNetwork {
+    /** Largest range a network is built for */
+    public static final int MAX_SIZE = 64;
+    /** True if the engines finish small ranges with a network rather than insertion sort in this JVM */
+    public static final boolean LEAF = "network".equals(System.getProperty("sorting.leaf"));
+
+    /** NETWORKS[n] holds the positions of each exchange for n numbers, lower then upper, pair after pair */
+    private static final int[][] NETWORKS = new int[MAX_SIZE + 1][];
+
+    static {
+        for (int n = 0; n <= MAX_SIZE; n++)
+            NETWORKS[n] = build(n);
+    }
+
+    private SortingNetwork() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @throws IllegalArgumentException if the range holds more than {@link #MAX_SIZE} numbers
+     */
+    public static void sort(int[] a, int from, int to) {
+        int[] network = network(to - from);
+        for (int k = 0; k < network.length; k += 2) {
+            int i = from + network[k], j = from + network[k + 1];
+            int x = a[i], y = a[j];
+            a[i] = Math.min(x, y);
+            a[j] = Math.max(x, y);
+        }
+
+        if (SortStats.ENABLED) {
+            // Every exchange compares, reads and writes back both of its numbers, whether they move or not
+            int exchanges = network.length / 2;
+            SortStats.compare(exchanges);
+            SortStats.read(2L * exchanges);
+            SortStats.write(2L * exchanges);
+        }
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        int[] network = network(to - from);
+        for (int k = 0; k < network.length; k += 2) {
+            int i = from + network[k], j = from + network[k + 1];
+            long x = a[i], y = a[j];
+            a[i] = Math.min(x, y);
+            a[j] = Math.max(x, y);
+        }
+    }
+
+    // Math.min and Math.max would turn a NaN into two and order -0.0 first, so doubles exchange on < instead
+    public static void sort(double[] a, int from, int to) {
+        int[] network = network(to - from);
+        for (int k = 0; k < network.length; k += 2) {
+            int i = from + network[k], j = from + network[k + 1];
+            double x = a[i], y = a[j];
+            boolean swap = y < x;
+            a[i] = swap ? y : x;
+            a[j] = swap ? x : y;
+        }
+    }
+
+    /**
+     * Finishes a small range the way {@link #LEAF} says: with a network if it is on and the range fits, with
+     * insertion sort otherwise
+     */
+    static void leaf(int[] a, int from, int to) {
+        if (LEAF && to - from <= MAX_SIZE)
+            sort(a, from, to);
+        else
+            InsertionSort.sort(a, from, to);
+    }
+
+    static void leaf(long[] a, int from, int to) {
+        if (LEAF && to - from <= MAX_SIZE)
+            sort(a, from, to);
+        else
+            InsertionSort.sort(a, from, to);
+    }
+
+    static void leaf(double[] a, int from, int to) {
+        if (LEAF && to - from <= MAX_SIZE)
+            sort(a, from, to);
+        else
+            InsertionSort.sort(a, from, to);
+    }
+
+    private static int[] network(int n) {
+        if (n > MAX_SIZE)
+            throw new IllegalArgumentException("No sorting network for " + n + " numbers, at most " + MAX_SIZE);
+        return NETWORKS[Math.max(n, 0)];
+    }
+
+    /**
+     * Lists the exchanges of Batcher's odd-even merge sort for the smallest power of two at or above n,
+     * keeping only those between positions below n
+     */
+    private static int[] build(int n) {
+        int size = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        int[] pairs = new int[2 * size * size];
+        int count = 0;
+
+        // Each pass p merges sorted blocks of p into blocks of 2p, comparing at distance k from p down to 1
+        for (int p = 1; p < size; p <<= 1) {
+            for (int k = p; k >= 1; k >>= 1) {
+                for (int j = k % p; j + k < size; j += 2 * k) {
+                    for (int i = 0; i < k && i + j + k < size; i++) {
+                        int lo = i + j, hi = i + j + k;
+                        if (lo / (2 * p) == hi / (2 * p) && hi < n) {
+                            pairs[count++] = lo;
+                            pairs[count++] = hi;
+                        }
+                    }
+                }
+            }
+        }
+        int[] network = new int[count];
+        System.arraycopy(pairs, 0, network, 0, count);
+        return network;
+    }
+}
@@ -0,0 +1,1361 @@
+package sorting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Adaptive natural-run merge sort (TimSort) over primitive arrays, and object arrays with a comparator.
+ * <p>
+ * The input is scanned for runs that are already ascending, or strictly descending and reversed in place.
+ * Runs shorter than a minimum length are extended with binary insertion sort, then pushed on a stack
+ * that merges neighbours whenever their lengths stop shrinking fast enough, which keeps merges balanced.
+ * Merges copy only the smaller run aside, so the temp buffer never exceeds n/2, and switch to galloping
+ * (exponential search) when one run keeps winning, so presorted input costs close to a single linear pass.
+ * Equal numbers keep their order. The double variants order by {@code <} and do not support NaN.
+ * <p>
+ * The algorithm is Tim Peters's, described in listsort.txt in the CPython sources. This implementation is a port
+ * of {@code java.util.TimSort} from OpenJDK, written by Josh Bloch, copyright 2009 Google Inc. and Oracle, and
+ * licensed under the GNU General Public License version 2 with the Classpath Exception. MIN_MERGE, MIN_GALLOP,
+ * the run stack sized by MAX_RUNS, mergeCollapse and gallopLeft/gallopRight keep that class's shape, specialised
+ * once per primitive type so comparisons compile to plain {@code <}.
+ */
+public final class TimSort {
+    /** Ranges shorter than this are binary insertion sorted without merging */
+    private static final int MIN_MERGE = 32;
+    /** Consecutive wins by one run before a merge starts galloping */
+    private static final int MIN_GALLOP = 7;
+    /** Enough pending runs for any int length under the stack invariant */
+    private static final int MAX_RUNS = 49;
+
+    private TimSort() {
+    }
+
+    public static void sort(int[] a) {
+        sort(a, 0, a.length, null);
+    }
+
+    public static void sort(long[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(double[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public static void sort(int[] a, int from, int to) {
+        sort(a, from, to, null);
+    }
+
+    /**
+     * Sorts a[from, to) in ascending order; equal numbers keep their order
+     * @param a numbers to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param observer notified after every merge; may be null
+     */
+    public static void sort(int[] a, int from, int to, SortObserver observer) {
+        int n = to - from;
+        if (n < 2)
+            return;
+
+        // Small ranges: one run plus binary insertion sort, no merging
+        if (n < MIN_MERGE) {
+            int runLen = countRunAndMakeAscending(a, from, to);
+            binaryInsertionSort(a, from, to, from + runLen);
+            if (observer != null)
+                observer.write(from, to);
+            return;
+        }
+
+        IntMerger merger = new IntMerger(a, n, observer);
+        int minRun = minRunLength(n);
+        int lo = from;
+        while (lo < to) {
+            int runLen = countRunAndMakeAscending(a, lo, to);
+
+            // Extend short runs to minRun
+            if (runLen < minRun) {
+                int force = Math.min(to - lo, minRun);
+                binaryInsertionSort(a, lo, lo + force, lo + runLen);
+                runLen = force;
+            }
+            if (observer != null)
+                observer.write(lo, lo + runLen);
+
+            merger.pushRun(lo, runLen);
+            merger.mergeCollapse();
+            lo += runLen;
+        }
+        merger.mergeForceCollapse();
+    }
+
+    public static void sort(long[] a, int from, int to) {
+        int n = to - from;
+        if (n < 2)
+            return;
+        if (n < MIN_MERGE) {
+            int runLen = countRunAndMakeAscending(a, from, to);
+            binaryInsertionSort(a, from, to, from + runLen);
+            return;
+        }
+        LongMerger merger = new LongMerger(a, n);
+        int minRun = minRunLength(n);
+        int lo = from;
+        while (lo < to) {
+            int runLen = countRunAndMakeAscending(a, lo, to);
+            if (runLen < minRun) {
+                int force = Math.min(to - lo, minRun);
+                binaryInsertionSort(a, lo, lo + force, lo + runLen);
+                runLen = force;
+            }
+            merger.pushRun(lo, runLen);
+            merger.mergeCollapse();
+            lo += runLen;
+        }
+        merger.mergeForceCollapse();
+    }
+
+    public static void sort(double[] a, int from, int to) {
+        int n = to - from;
+        if (n < 2)
+            return;
+        if (n < MIN_MERGE) {
+            int runLen = countRunAndMakeAscending(a, from, to);
+            binaryInsertionSort(a, from, to, from + runLen);
+            return;
+        }
+        DoubleMerger merger = new DoubleMerger(a, n);
+        int minRun = minRunLength(n);
+        int lo = from;
+        while (lo < to) {
+            int runLen = countRunAndMakeAscending(a, lo, to);
+            if (runLen < minRun) {
+                int force = Math.min(to - lo, minRun);
+                binaryInsertionSort(a, lo, lo + force, lo + runLen);
+                runLen = force;
+            }
+            merger.pushRun(lo, runLen);
+            merger.mergeCollapse();
+            lo += runLen;
+        }
+        merger.mergeForceCollapse();
+    }
+
+    public static <T> void sort(T[] a, Comparator<? super T> c) {
+        sort(a, 0, a.length, c);
+    }
+
+    /**
+     * Sorts a[from, to) by c; equal elements keep their order. Objects go to
+     * {@link Arrays#sort(Object[], int, int, Comparator)}, which is this same algorithm on references, rather
+     * than to a fourth copy of the mergers below.
+     * @param a elements to be sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param c ordering of the elements
+     */
+    public static <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+        Arrays.sort(a, from, to, c);
+    }
+
+    /**
+     * Picks a run length between MIN_MERGE / 2 and MIN_MERGE so n / minRun is close to, but no more than, a power of 2
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Finds the length of the run starting at lo, reversing it first if it is strictly descending
+     * (strictly, so reversing can't reorder equal numbers)
+     * @param a numbers to scan
+     * @param lo start of the run
+     * @param hi end of the range, exclusive
+     * @return length of the run, now ascending
+     */
+    static int countRunAndMakeAscending(int[] a, int lo, int hi) {
+        int runHi = lo + 1;
+        if (runHi == hi)
+            return 1;
+
+        if (a[runHi++] < a[lo]) {
+            while (runHi < hi && a[runHi] < a[runHi - 1])
+                runHi++;
+            for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+                int temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+            }
+            SortStats.swap((runHi - lo) >>> 1);
+        } else {
+            while (runHi < hi && a[runHi] >= a[runHi - 1])
+                runHi++;
+        }
+        // Every adjacent pair in the run plus the pair that ended it
+        SortStats.compare(Math.min(runHi - lo, hi - lo - 1));
+        SortStats.read(runHi - lo);
+        return runHi - lo;
+    }
+
+    static int countRunAndMakeAscending(long[] a, int lo, int hi) {
+        int runHi = lo + 1;
+        if (runHi == hi)
+            return 1;
+
+        if (a[runHi++] < a[lo]) {
+            while (runHi < hi && a[runHi] < a[runHi - 1])
+                runHi++;
+            for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+                long temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+            }
+        } else {
+            while (runHi < hi && a[runHi] >= a[runHi - 1])
+                runHi++;
+        }
+        return runHi - lo;
+    }
+
+    static int countRunAndMakeAscending(double[] a, int lo, int hi) {
+        int runHi = lo + 1;
+        if (runHi == hi)
+            return 1;
+
+        if (a[runHi++] < a[lo]) {
+            while (runHi < hi && a[runHi] < a[runHi - 1])
+                runHi++;
+            for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+                double temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+            }
+        } else {
+            while (runHi < hi && a[runHi] >= a[runHi - 1])
+                runHi++;
+        }
+        return runHi - lo;
+    }
+
+    /**
+     * Binary insertion sort of a[lo, hi) where a[lo, start) is already sorted
+     * @param a numbers to be sorted
+     * @param lo start index
+     * @param hi end index, exclusive
+     * @param start first number not yet in place
+     */
+    static void binaryInsertionSort(int[] a, int lo, int hi, int start) {
+        if (start == lo)
+            start++;
+        for (; start < hi; start++) {
+            int pivot = a[start];
+
+            // Insert after any equal numbers to stay stable
+            int left = lo, right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                SortStats.compare(1);
+                if (pivot < a[mid])
+                    right = mid;
+                else
+                    left = mid + 1;
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+            SortStats.move(start - left + 1);
+        }
+    }
+
+    static void binaryInsertionSort(long[] a, int lo, int hi, int start) {
+        if (start == lo)
+            start++;
+        for (; start < hi; start++) {
+            long pivot = a[start];
+
+            // Insert after any equal numbers to stay stable
+            int left = lo, right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (pivot < a[mid])
+                    right = mid;
+                else
+                    left = mid + 1;
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+        }
+    }
+
+    static void binaryInsertionSort(double[] a, int lo, int hi, int start) {
+        if (start == lo)
+            start++;
+        for (; start < hi; start++) {
+            double pivot = a[start];
+
+            // Insert after any equal numbers to stay stable
+            int left = lo, right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (pivot < a[mid])
+                    right = mid;
+                else
+                    left = mid + 1;
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+        }
+    }
+
+    /**
+     * Finds where key belongs in the sorted a[base, base + len), in front of any equal numbers.
+     * Gallops outward from the hint in steps of 1, 3, 7, ... then binary searches the last step.
+     * @param key number to place
+     * @param a sorted numbers
+     * @param base start of the range
+     * @param len length of the range
+     * @param hint index relative to base to start from
+     * @return k such that a[base + k - 1] &lt; key &lt;= a[base + k]
+     */
+    private static int gallopLeft(int key, int[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        SortStats.compare(1);
+        if (key > a[base + hint]) {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key > a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                SortStats.compare(1);
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key <= a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                SortStats.compare(1);
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+
+        // Now a[base + lastOfs] < key <= a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            SortStats.compare(1);
+            if (key > a[base + m])
+                lastOfs = m + 1;
+            else
+                ofs = m;
+        }
+        return ofs;
+    }
+
+    /**
+     * Like {@link #gallopLeft(int, int[], int, int, int)} but places key after any equal numbers
+     * @return k such that a[base + k - 1] &lt;= key &lt; a[base + k]
+     */
+    private static int gallopRight(int key, int[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        SortStats.compare(1);
+        if (key < a[base + hint]) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key < a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                SortStats.compare(1);
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key >= a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                SortStats.compare(1);
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        }
+
+        // Now a[base + lastOfs] <= key < a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            SortStats.compare(1);
+            if (key < a[base + m])
+                ofs = m;
+            else
+                lastOfs = m + 1;
+        }
+        return ofs;
+    }
+
+    private static int gallopLeft(long key, long[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        if (key > a[base + hint]) {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key > a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key <= a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+
+        // Now a[base + lastOfs] < key <= a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (key > a[base + m])
+                lastOfs = m + 1;
+            else
+                ofs = m;
+        }
+        return ofs;
+    }
+
+    private static int gallopRight(long key, long[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        if (key < a[base + hint]) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key < a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key >= a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        }
+
+        // Now a[base + lastOfs] <= key < a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (key < a[base + m])
+                ofs = m;
+            else
+                lastOfs = m + 1;
+        }
+        return ofs;
+    }
+
+    private static int gallopLeft(double key, double[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        if (key > a[base + hint]) {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key > a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key <= a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+
+        // Now a[base + lastOfs] < key <= a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (key > a[base + m])
+                lastOfs = m + 1;
+            else
+                ofs = m;
+        }
+        return ofs;
+    }
+
+    private static int gallopRight(double key, double[] a, int base, int len, int hint) {
+        int lastOfs = 0, ofs = 1;
+        if (key < a[base + hint]) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && key < a[base + hint - ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs && key >= a[base + hint + ofs]) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0)
+                    ofs = maxOfs;
+            }
+            if (ofs > maxOfs)
+                ofs = maxOfs;
+            lastOfs += hint;
+            ofs += hint;
+        }
+
+        // Now a[base + lastOfs] <= key < a[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (key < a[base + m])
+                ofs = m;
+            else
+                lastOfs = m + 1;
+        }
+        return ofs;
+    }
+
+    /**
+     * Pending run stack and merge state for one sort
+     */
+    private static final class IntMerger {
+        private final int[] a;
+        private final int n;
+        private int[] tmp;
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLen = new int[MAX_RUNS];
+        private int stackSize;
+        private final SortObserver observer;
+
+        IntMerger(int[] a, int n, SortObserver observer) {
+            this.a = a;
+            this.n = n;
+            this.tmp = new int[Math.min(256, n >>> 1)];
+            SortStats.allocate(4L * tmp.length);
+            this.observer = observer;
+        }
+
+        void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+            SortStats.enter();
+        }
+
+        /**
+         * Merges runs until, for the top three lengths X, Y, Z (Z on top), Y > Z and X > Y + Z,
+         * which keeps the stack depth logarithmic and merges of similar sizes
+         */
+        void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] <= runLen[i] + runLen[i + 1]
+                        || i > 1 && runLen[i - 2] <= runLen[i] + runLen[i - 1]) {
+                    if (runLen[i - 1] < runLen[i + 1])
+                        i--;
+                } else if (runLen[i] > runLen[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] < runLen[i + 1])
+                    i--;
+                mergeAt(i);
+            }
+        }
+
+        /**
+         * Merges the runs at stack positions i and i + 1
+         */
+        private void mergeAt(int i) {
+            int base1 = runBase[i], len1 = runLen[i];
+            int base2 = runBase[i + 1], len2 = runLen[i + 1];
+
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+            SortStats.exit();
+
+            // Numbers of run1 before the first of run2, and of run2 after the last of run1, are already in place
+            int k = gallopRight(a[base2], a, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 != 0) {
+                len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+                if (len2 != 0) {
+                    if (observer != null)
+                        observer.compare(base2 - 1, base2);
+                    if (len1 <= len2)
+                        mergeLo(base1, len1, base2, len2);
+                    else
+                        mergeHi(base1, len1, base2, len2);
+                    if (observer != null)
+                        observer.write(base1, base2 + len2);
+                }
+            }
+
+            if (observer != null)
+                observer.step();
+        }
+
+        /**
+         * Merges left to right with run1, the shorter one, copied to tmp
+         */
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            int[] a = this.a;
+            int[] tmp = ensureCapacity(len1);
+            System.arraycopy(a, base1, tmp, 0, len1);
+            SortStats.move(len1);
+            int cursor1 = 0, cursor2 = base2, dest = base1;
+
+            a[dest++] = a[cursor2++];
+            SortStats.move(1);
+            if (--len2 == 0) {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                SortStats.move(len1);
+                return;
+            }
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                SortStats.move(len2);
+                a[dest + len2] = tmp[cursor1];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+
+                // One at a time until a run wins minGallop times in a row
+                do {
+                    SortStats.compare(1);
+                    if (a[cursor2] < tmp[cursor1]) {
+                        a[dest++] = a[cursor2++];
+                        SortStats.move(1);
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 0)
+                            break outer;
+                    } else {
+                        a[dest++] = tmp[cursor1++];
+                        SortStats.move(1);
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                // Gallop until neither run wins by MIN_GALLOP
+                do {
+                    count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(tmp, cursor1, a, dest, count1);
+                        SortStats.move(count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        len1 -= count1;
+                        if (len1 <= 1)
+                            break outer;
+                    }
+                    a[dest++] = a[cursor2++];
+                    SortStats.move(1);
+                    if (--len2 == 0)
+                        break outer;
+
+                    count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(a, cursor2, a, dest, count2);
+                        SortStats.move(count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        len2 -= count2;
+                        if (len2 == 0)
+                            break outer;
+                    }
+                    a[dest++] = tmp[cursor1++];
+                    SortStats.move(1);
+                    if (--len1 == 1)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                SortStats.move(len2);
+                a[dest + len2] = tmp[cursor1];
+            } else {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                SortStats.move(len1);
+            }
+        }
+
+        /**
+         * Merges right to left with run2, the shorter one, copied to tmp
+         */
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            int[] a = this.a;
+            int[] tmp = ensureCapacity(len2);
+            System.arraycopy(a, base2, tmp, 0, len2);
+            SortStats.move(len2);
+            int cursor1 = base1 + len1 - 1, cursor2 = len2 - 1, dest = base2 + len2 - 1;
+
+            a[dest--] = a[cursor1--];
+            SortStats.move(1);
+            if (--len1 == 0) {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                SortStats.move(len2);
+                return;
+            }
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                SortStats.move(len1);
+                a[dest] = tmp[cursor2];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+                do {
+                    SortStats.compare(1);
+                    if (tmp[cursor2] < a[cursor1]) {
+                        a[dest--] = a[cursor1--];
+                        SortStats.move(1);
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 0)
+                            break outer;
+                    } else {
+                        a[dest--] = tmp[cursor2--];
+                        SortStats.move(1);
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        len1 -= count1;
+                        System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                        SortStats.move(count1);
+                        if (len1 == 0)
+                            break outer;
+                    }
+                    a[dest--] = tmp[cursor2--];
+                    SortStats.move(1);
+                    if (--len2 == 1)
+                        break outer;
+
+                    count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        len2 -= count2;
+                        System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                        SortStats.move(count2);
+                        if (len2 <= 1)
+                            break outer;
+                    }
+                    a[dest--] = a[cursor1--];
+                    SortStats.move(1);
+                    if (--len1 == 0)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                SortStats.move(len1);
+                a[dest] = tmp[cursor2];
+            } else {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                SortStats.move(len2);
+            }
+        }
+
+        /**
+         * Grows tmp by powers of two, never past n / 2 unless a run needs more
+         */
+        private int[] ensureCapacity(int minCapacity) {
+            if (tmp.length < minCapacity) {
+                int size = Integer.highestOneBit(minCapacity) << 1;
+                if (size <= 0 || size > n >>> 1)
+                    size = Math.max(minCapacity, n >>> 1);
+                tmp = new int[size];
+                SortStats.allocate(4L * size);
+            }
+            return tmp;
+        }
+    }
+
+    private static final class LongMerger {
+        private final long[] a;
+        private final int n;
+        private long[] tmp;
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLen = new int[MAX_RUNS];
+        private int stackSize;
+
+        LongMerger(long[] a, int n) {
+            this.a = a;
+            this.n = n;
+            this.tmp = new long[Math.min(256, n >>> 1)];
+        }
+
+        void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+        }
+        void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] <= runLen[i] + runLen[i + 1]
+                        || i > 1 && runLen[i - 2] <= runLen[i] + runLen[i - 1]) {
+                    if (runLen[i - 1] < runLen[i + 1])
+                        i--;
+                } else if (runLen[i] > runLen[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] < runLen[i + 1])
+                    i--;
+                mergeAt(i);
+            }
+        }
+        private void mergeAt(int i) {
+            int base1 = runBase[i], len1 = runLen[i];
+            int base2 = runBase[i + 1], len2 = runLen[i + 1];
+
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+
+            int k = gallopRight(a[base2], a, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 != 0) {
+                len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+                if (len2 != 0) {
+                    if (len1 <= len2)
+                        mergeLo(base1, len1, base2, len2);
+                    else
+                        mergeHi(base1, len1, base2, len2);
+                }
+            }
+        }
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            long[] a = this.a;
+            long[] tmp = ensureCapacity(len1);
+            System.arraycopy(a, base1, tmp, 0, len1);
+            int cursor1 = 0, cursor2 = base2, dest = base1;
+
+            a[dest++] = a[cursor2++];
+            if (--len2 == 0) {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                return;
+            }
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+
+                do {
+                    if (a[cursor2] < tmp[cursor1]) {
+                        a[dest++] = a[cursor2++];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 0)
+                            break outer;
+                    } else {
+                        a[dest++] = tmp[cursor1++];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(tmp, cursor1, a, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        len1 -= count1;
+                        if (len1 <= 1)
+                            break outer;
+                    }
+                    a[dest++] = a[cursor2++];
+                    if (--len2 == 0)
+                        break outer;
+
+                    count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(a, cursor2, a, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        len2 -= count2;
+                        if (len2 == 0)
+                            break outer;
+                    }
+                    a[dest++] = tmp[cursor1++];
+                    if (--len1 == 1)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+            } else {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+            }
+        }
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            long[] a = this.a;
+            long[] tmp = ensureCapacity(len2);
+            System.arraycopy(a, base2, tmp, 0, len2);
+            int cursor1 = base1 + len1 - 1, cursor2 = len2 - 1, dest = base2 + len2 - 1;
+
+            a[dest--] = a[cursor1--];
+            if (--len1 == 0) {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                return;
+            }
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+                do {
+                    if (tmp[cursor2] < a[cursor1]) {
+                        a[dest--] = a[cursor1--];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 0)
+                            break outer;
+                    } else {
+                        a[dest--] = tmp[cursor2--];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        len1 -= count1;
+                        System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                        if (len1 == 0)
+                            break outer;
+                    }
+                    a[dest--] = tmp[cursor2--];
+                    if (--len2 == 1)
+                        break outer;
+
+                    count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        len2 -= count2;
+                        System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                        if (len2 <= 1)
+                            break outer;
+                    }
+                    a[dest--] = a[cursor1--];
+                    if (--len1 == 0)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+            } else {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+            }
+        }
+        private long[] ensureCapacity(int minCapacity) {
+            if (tmp.length < minCapacity) {
+                int size = Integer.highestOneBit(minCapacity) << 1;
+                if (size <= 0 || size > n >>> 1)
+                    size = Math.max(minCapacity, n >>> 1);
+                tmp = new long[size];
+            }
+            return tmp;
+        }
+    }
+
+    private static final class DoubleMerger {
+        private final double[] a;
+        private final int n;
+        private double[] tmp;
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLen = new int[MAX_RUNS];
+        private int stackSize;
+
+        DoubleMerger(double[] a, int n) {
+            this.a = a;
+            this.n = n;
+            this.tmp = new double[Math.min(256, n >>> 1)];
+        }
+
+        void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+        }
+        void mergeCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] <= runLen[i] + runLen[i + 1]
+                        || i > 1 && runLen[i - 2] <= runLen[i] + runLen[i - 1]) {
+                    if (runLen[i - 1] < runLen[i + 1])
+                        i--;
+                } else if (runLen[i] > runLen[i + 1]) {
+                    break;
+                }
+                mergeAt(i);
+            }
+        }
+
+        void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int i = stackSize - 2;
+                if (i > 0 && runLen[i - 1] < runLen[i + 1])
+                    i--;
+                mergeAt(i);
+            }
+        }
+        private void mergeAt(int i) {
+            int base1 = runBase[i], len1 = runLen[i];
+            int base2 = runBase[i + 1], len2 = runLen[i + 1];
+
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+
+            int k = gallopRight(a[base2], a, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 != 0) {
+                len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+                if (len2 != 0) {
+                    if (len1 <= len2)
+                        mergeLo(base1, len1, base2, len2);
+                    else
+                        mergeHi(base1, len1, base2, len2);
+                }
+            }
+        }
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            double[] a = this.a;
+            double[] tmp = ensureCapacity(len1);
+            System.arraycopy(a, base1, tmp, 0, len1);
+            int cursor1 = 0, cursor2 = base2, dest = base1;
+
+            a[dest++] = a[cursor2++];
+            if (--len2 == 0) {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                return;
+            }
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+
+                do {
+                    if (a[cursor2] < tmp[cursor1]) {
+                        a[dest++] = a[cursor2++];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 0)
+                            break outer;
+                    } else {
+                        a[dest++] = tmp[cursor1++];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(tmp, cursor1, a, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        len1 -= count1;
+                        if (len1 <= 1)
+                            break outer;
+                    }
+                    a[dest++] = a[cursor2++];
+                    if (--len2 == 0)
+                        break outer;
+
+                    count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(a, cursor2, a, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        len2 -= count2;
+                        if (len2 == 0)
+                            break outer;
+                    }
+                    a[dest++] = tmp[cursor1++];
+                    if (--len1 == 1)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+            } else {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+            }
+        }
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            double[] a = this.a;
+            double[] tmp = ensureCapacity(len2);
+            System.arraycopy(a, base2, tmp, 0, len2);
+            int cursor1 = base1 + len1 - 1, cursor2 = len2 - 1, dest = base2 + len2 - 1;
+
+            a[dest--] = a[cursor1--];
+            if (--len1 == 0) {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                return;
+            }
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+                return;
+            }
+
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0, count2 = 0;
+                do {
+                    if (tmp[cursor2] < a[cursor1]) {
+                        a[dest--] = a[cursor1--];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 0)
+                            break outer;
+                    } else {
+                        a[dest--] = tmp[cursor2--];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 1)
+                            break outer;
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        len1 -= count1;
+                        System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                        if (len1 == 0)
+                            break outer;
+                    }
+                    a[dest--] = tmp[cursor2--];
+                    if (--len2 == 1)
+                        break outer;
+
+                    count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        len2 -= count2;
+                        System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                        if (len2 <= 1)
+                            break outer;
+                    }
+                    a[dest--] = a[cursor1--];
+                    if (--len1 == 0)
+                        break outer;
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0)
+                    minGallop = 0;
+                minGallop += 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+            } else {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+            }
+        }
+        private double[] ensureCapacity(int minCapacity) {
+            if (tmp.length < minCapacity) {
+                int size = Integer.highestOneBit(minCapacity) << 1;
+                if (size <= 0 || size > n >>> 1)
+                    size = Math.max(minCapacity, n >>> 1);
+                tmp = new double[size];
+            }
+            return tmp;
+        }
+    }
+}